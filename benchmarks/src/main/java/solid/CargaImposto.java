@@ -0,0 +1,34 @@
+package solid;
+
+import java.util.Random;
+
+/**
+ * Itens de imposto gerados com semente fixa: os pares errado/corrigido calculam exatamente
+ * os mesmos países, categorias e preços.
+ */
+public final class CargaImposto {
+    public static final String[] PAISES = { "brasil", "eua", "europa" };
+    // "brinquedo" não tem alíquota própria: exercita a taxa padrão do país
+    public static final String[] CATEGORIAS = { "eletronico", "livro", "alimento", "brinquedo" };
+
+    public final String[] paises;
+    public final String[] categorias;
+    public final double[] precos;
+
+    public CargaImposto(int itens, int quantidadePaises) {
+        this(itens, PAISES, quantidadePaises);
+    }
+
+    // Os itens alternam entre os primeiros quantidadePaises nomes de disponiveis
+    public CargaImposto(int itens, String[] disponiveis, int quantidadePaises) {
+        Random aleatorio = new Random(42);
+        paises = new String[itens];
+        categorias = new String[itens];
+        precos = new double[itens];
+        for (int i = 0; i < itens; i++) {
+            paises[i] = disponiveis[i % quantidadePaises];
+            categorias[i] = CATEGORIAS[aleatorio.nextInt(CATEGORIAS.length)];
+            precos[i] = 1 + aleatorio.nextInt(1_000_000) / 100.0;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package solid;
+
+/**
+ * Pacientes com CPFs distintos no formato "ddd.ddd.ddd-dd", iguais para os dois lados do par.
+ */
+public final class CargaPacientes {
+    public final String[] nomes;
+    public final String[] cpfs;
+    public final String[] telefones;
+
+    public CargaPacientes(int quantidade) {
+        nomes = new String[quantidade];
+        cpfs = new String[quantidade];
+        telefones = new String[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            // Multiplicar por um primo espalha os CPFs em vez de gerar uma sequência
+            long numero = (i * 7_919L + 10_000_000_000L) % 100_000_000_000L;
+            nomes[i] = "Paciente " + i;
+            cpfs[i] = String.format("%03d.%03d.%03d-%02d",
+                    numero / 100_000_000, numero / 100_000 % 1_000, numero / 100 % 1_000, numero % 100);
+            telefones[i] = "119" + (10_000_000 + i);
+        }
+    }
+
+    // Datas "dd/MM/uuuu" espalhadas por um ano
+    public static String data(int i) {
+        return String.format("%02d/%02d/2024", 1 + i % 28, 1 + i / 28 % 12);
+    }
+}
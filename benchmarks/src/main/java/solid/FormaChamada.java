@@ -0,0 +1,22 @@
+package solid;
+
+/**
+ * Quantos tipos de receptor um mesmo ponto de chamada enxerga durante o benchmark.
+ * O C2 inlina chamadas com até dois tipos vistos (mono e bimórficas); a partir de três
+ * o ponto vira megamórfico e passa a ser um despacho pela vtable/itable, sem inlining.
+ */
+public enum FormaChamada {
+    MONOMORFICA(1),
+    BIMORFICA(2),
+    MEGAMORFICA(3);
+
+    private final int tipos;
+
+    FormaChamada(int tipos) {
+        this.tipos = tipos;
+    }
+
+    public int tipos() {
+        return tipos;
+    }
+}
@@ -0,0 +1,19 @@
+package solid;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * As lições imprimem no console a cada operação; nos benchmarks essa saída é descartada,
+ * senão o que se mede é o terminal e não o desenho das classes.
+ */
+public final class SaidaNula {
+    public static final PrintStream SAIDA = new PrintStream(OutputStream.nullOutputStream());
+
+    private SaidaNula() {
+    }
+
+    public static void silenciarConsole() {
+        System.setOut(SAIDA);
+    }
+}
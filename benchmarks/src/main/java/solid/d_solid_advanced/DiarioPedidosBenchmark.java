@@ -0,0 +1,111 @@
+package solid.d_solid_advanced;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ✅ Diário de pedidos em arquivos mapeados: vazão de registrar (sem e com espera pelo disco)
+ * e tempo de recuperação de um diário com N pedidos (use -p pedidos=10000000 para o caso grande).
+ */
+@Fork(1)
+public class DiarioPedidosBenchmark {
+    private static final int TAMANHO_SEGMENTO = 16 << 20;
+
+    @State(Scope.Thread)
+    public static class Escrita {
+        Path diretorio;
+        DiarioPedidos diario;
+
+        // Um diário novo por iteração: os segmentos não se acumulam no disco
+        @Setup(Level.Iteration)
+        public void abrir() throws IOException {
+            diretorio = Files.createTempDirectory("diario-bench");
+            diario = new DiarioPedidos(diretorio, TAMANHO_SEGMENTO);
+        }
+
+        @TearDown(Level.Iteration)
+        public void fechar() {
+            diario.close();
+            apagar(diretorio);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Recuperacao {
+        @Param({ "1000000" })
+        public int pedidos;
+
+        Path diretorio;
+
+        @Setup(Level.Trial)
+        public void gravar() throws IOException {
+            diretorio = Files.createTempDirectory("diario-bench");
+            try (DiarioPedidos diario = new DiarioPedidos(diretorio, TAMANHO_SEGMENTO)) {
+                for (int i = 0; i < pedidos; i++) {
+                    diario.registrar("Pedido " + i);
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void apagar() {
+            DiarioPedidosBenchmark.apagar(diretorio);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public long registrar(Escrita estado) {
+        return estado.diario.registrar("Pedido");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public long registrarDuravel(Escrita estado) {
+        return estado.diario.registrarDuravel("Pedido");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public long recuperar(Recuperacao estado) {
+        try (DiarioPedidos diario = new DiarioPedidos(estado.diretorio, TAMANHO_SEGMENTO)) {
+            return diario.recuperar(pedido -> { });
+        }
+    }
+
+    static void apagar(Path diretorio) {
+        try (Stream<Path> arquivos = Files.walk(diretorio)) {
+            arquivos.sorted(Comparator.reverseOrder()).forEach(arquivo -> arquivo.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package solid.d_solid_advanced;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ✅ Custo do decorador de latência: o mesmo pagamento vazio chamado direto e via
+ * PagamentoInstrumentado (duas leituras de System.nanoTime() e um registro no histograma).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstrumentacaoBenchmark {
+    private Pagamento direto;
+    private Pagamento instrumentado;
+    private long valor;
+
+    @Setup
+    public void preparar() {
+        direto = valorCentavos -> valorCentavos > 0;
+        instrumentado = new PagamentoInstrumentado(direto, new RegistroMetricas());
+    }
+
+    @Benchmark
+    public boolean direto() {
+        return direto.processarPagamentoEmCentavos(++valor);
+    }
+
+    @Benchmark
+    public boolean instrumentado() {
+        return instrumentado.processarPagamentoEmCentavos(++valor);
+    }
+}
@@ -0,0 +1,60 @@
+package solid.d_solid_advanced;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solid.FormaChamada;
+import solid.SaidaNula;
+
+/**
+ * ✅ Processador com Pagamento injetado. Cada forma usa processadores com 1, 2 ou 3 classes
+ * de pagamento chamados em rodízio, então a chamada metodoPagamento.processarPagamentoEmCentavos
+ * dentro de processarPedidoEmCentavos vê essa quantidade de tipos.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessadorPedidoBenchmark {
+    @Param
+    public FormaChamada forma;
+
+    private ProcessadorPedido[] processadores;
+    private long contador;
+
+    @Setup
+    public void silenciar() {
+        Log.configurar(new RegistroAssincrono(SaidaNula.SAIDA, NivelLog.INFO, 8192));
+    }
+
+    // O registro de pedidos só cresce: processadores novos por iteração mantêm o heap estável
+    @Setup(Level.Iteration)
+    public void preparar() {
+        Pagamento[] pagamentos = {
+                new PagamentoCartao(), new PagamentoPix(), new PagamentoInstrumentado(new PagamentoCartao(), new RegistroMetricas()) };
+        processadores = new ProcessadorPedido[forma.tipos()];
+        for (int i = 0; i < processadores.length; i++) {
+            processadores[i] = new ProcessadorPedido(pagamentos[i], new NotificacaoEmail());
+        }
+    }
+
+    @Benchmark
+    public boolean processarPedido() {
+        long n = contador++;
+        return processadores[(int) (n % processadores.length)].processarPedidoEmCentavos("Pedido", 10_000 + (n & 1023), "cliente@email.com");
+    }
+}
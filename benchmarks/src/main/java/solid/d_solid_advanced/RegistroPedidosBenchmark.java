@@ -0,0 +1,48 @@
+package solid.d_solid_advanced;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ✅ Inclusão concorrente no registro de pedidos. Compare a vazão total de umaThread com
+ * todasAsThreads (uma por núcleo): o cursor único é o ponto de disputa entre núcleos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistroPedidosBenchmark {
+    private RegistroPedidos registro;
+
+    // Capacidade finita: um registro novo por iteração
+    @Setup(Level.Iteration)
+    public void preparar() {
+        registro = new RegistroPedidos();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void umaThread() {
+        registro.adicionar("Pedido");
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void todasAsThreads() {
+        registro.adicionar("Pedido");
+    }
+}
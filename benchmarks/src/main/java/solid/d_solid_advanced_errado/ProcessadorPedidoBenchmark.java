@@ -0,0 +1,48 @@
+package solid.d_solid_advanced_errado;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solid.SaidaNula;
+
+/**
+ * ❌ Processador preso a PagamentoCartao e NotificacaoEmail: só existe a forma monomórfica,
+ * porque não há como trocar as implementações.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessadorPedidoBenchmark {
+    private ProcessadorPedido processador;
+    private long contador;
+
+    @Setup
+    public void silenciar() {
+        SaidaNula.silenciarConsole();
+    }
+
+    // A lista de pedidos só cresce: um processador novo por iteração mantém o heap estável
+    @Setup(Level.Iteration)
+    public void preparar() {
+        processador = new ProcessadorPedido();
+    }
+
+    @Benchmark
+    public void processarPedido() {
+        processador.processarPedido("Pedido", 100 + (contador++ & 1023), "cliente@email.com");
+    }
+}
@@ -0,0 +1,75 @@
+package solid.i_solid_advanced;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solid.FormaChamada;
+import solid.SaidaNula;
+
+/**
+ * ✅ Interfaces segregadas: a folha soma Trabalhavel e só registra ponto de quem é Registravel,
+ * então o PJ é pulado por um instanceof em vez de uma exceção.
+ * A forma define quantas classes (CLT, PJ, Estagiário) aparecem na folha.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FolhaPagamentoBenchmark {
+    private static final int FUNCIONARIOS = 1024;
+
+    @Param
+    public FormaChamada forma;
+
+    private Trabalhavel[] folha;
+
+    @Setup
+    public void preparar() {
+        SaidaNula.silenciarConsole();
+        folha = new Trabalhavel[FUNCIONARIOS];
+        for (int i = 0; i < FUNCIONARIOS; i++) {
+            switch (i % forma.tipos()) {
+                case 0 -> folha[i] = new FuncionarioCLT(5_000 + i);
+                case 1 -> folha[i] = new FuncionarioPJ(7_000 + i);
+                default -> folha[i] = new Estagiario(1_500 + i);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FUNCIONARIOS)
+    public double somarSalarios() {
+        double total = 0;
+        for (Trabalhavel funcionario : folha) {
+            total += funcionario.calcularSalario();
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FUNCIONARIOS)
+    public int registrarPontos() {
+        int registrados = 0;
+        for (Trabalhavel funcionario : folha) {
+            if (funcionario instanceof Registravel registravel) {
+                registravel.registrarPonto();
+                registrados++;
+            }
+        }
+        return registrados;
+    }
+}
@@ -0,0 +1,111 @@
+package solid.o_solid_advanced;
+
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solid.CargaImposto;
+import solid.FormaChamada;
+
+/**
+ * ✅ Calculadora aberta para extensão, com os mesmos itens do benchmark da versão errada.
+ * As regras tabeladas (Brasil, EUA, Europa) viram linhas de double[] e não passam por chamada
+ * virtual; por isso calcularImpostoRegraPropria usa regras que não são tabela, uma classe
+ * diferente por país, e é ali que a forma do ponto de chamada RegraDeImposto.calcular aparece.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculadoraImpostoBenchmark {
+    private static final int ITENS = 1024;
+    private static final String[] PAISES_REGRA_PROPRIA = { "progressiva", "japao", "canada" };
+
+    @Param
+    public FormaChamada forma;
+
+    private CalculadoraImposto calculadora;
+    private CargaImposto tabelada;
+    private CargaImposto regraPropria;
+    private int[] idsPaises;
+    private int[] idsCategorias;
+    private long[] precosCentavos;
+
+    @Setup
+    public void preparar() {
+        calculadora = new CalculadoraImposto();
+        FaixasProgressivas faixas = new FaixasProgressivas(new double[] { 0, 1_000, 5_000 }, new double[] { 0, 0.10, 0.25 });
+        calculadora.adicionarRegra("progressiva", new ImpostoProgressivo(faixas, Map.of()));
+        calculadora.adicionarRegra("japao", (categoria, preco) -> preco * 0.35);
+        calculadora.adicionarRegra("canada", (categoria, preco) -> preco * ("livro".equals(categoria) ? 0.05 : 0.13));
+
+        tabelada = new CargaImposto(ITENS, forma.tipos());
+        regraPropria = new CargaImposto(ITENS, PAISES_REGRA_PROPRIA, forma.tipos());
+        idsPaises = new int[ITENS];
+        idsCategorias = new int[ITENS];
+        precosCentavos = new long[ITENS];
+        for (int i = 0; i < ITENS; i++) {
+            idsPaises[i] = calculadora.idPais(tabelada.paises[i]);
+            idsCategorias[i] = Categorias.id(tabelada.categorias[i]);
+            precosCentavos[i] = Dinheiro.multiplicar(100, tabelada.precos[i], RoundingMode.HALF_EVEN);
+        }
+    }
+
+    // Mesma chamada por nomes da versão errada
+    @Benchmark
+    @OperationsPerInvocation(ITENS)
+    public double calcularImpostoTabelado() {
+        double total = 0;
+        for (int i = 0; i < ITENS; i++) {
+            total += calculadora.calcularImposto(tabelada.paises[i], tabelada.categorias[i], tabelada.precos[i]);
+        }
+        return total;
+    }
+
+    // IDs resolvidos uma vez fora do laço: sem hash de String por item
+    @Benchmark
+    @OperationsPerInvocation(ITENS)
+    public double calcularImpostoPorId() {
+        double total = 0;
+        for (int i = 0; i < ITENS; i++) {
+            total += calculadora.calcularImposto(idsPaises[i], idsCategorias[i], tabelada.precos[i]);
+        }
+        return total;
+    }
+
+    // Mesmo caminho por ID, em centavos com arredondamento HALF_EVEN (custo do Dinheiro)
+    @Benchmark
+    @OperationsPerInvocation(ITENS)
+    public long calcularImpostoEmCentavosPorId() {
+        long total = 0;
+        for (int i = 0; i < ITENS; i++) {
+            total += calculadora.calcularImpostoEmCentavos(idsPaises[i], idsCategorias[i], precosCentavos[i]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITENS)
+    public double calcularImpostoRegraPropria() {
+        double total = 0;
+        for (int i = 0; i < ITENS; i++) {
+            total += calculadora.calcularImposto(regraPropria.paises[i], regraPropria.categorias[i], regraPropria.precos[i]);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,79 @@
+package solid.o_solid_advanced;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ✅ Imposto de carrinho grande: soma simples item a item contra calcularImpostoCarrinho com
+ * 1 thread e com o pool comum. A diferença entre os dois últimos só aparece com vários núcleos.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CarrinhoImpostoBenchmark {
+    @Param({ "100000", "1000000" })
+    public int linhas;
+
+    private CalculadoraImposto calculadora;
+    private ForkJoinPool umaThread;
+    private int brasil;
+    private int[] categorias;
+    private double[] precos;
+
+    @Setup
+    public void preparar() {
+        calculadora = new CalculadoraImposto();
+        umaThread = new ForkJoinPool(1);
+        brasil = calculadora.idPais("brasil");
+        Random aleatorio = new Random(42);
+        categorias = new int[linhas];
+        precos = new double[linhas];
+        int[] disponiveis = { Categorias.OUTROS, Categorias.ELETRONICO, Categorias.LIVRO, Categorias.ALIMENTO };
+        for (int i = 0; i < linhas; i++) {
+            categorias[i] = disponiveis[aleatorio.nextInt(disponiveis.length)];
+            precos[i] = 1 + aleatorio.nextInt(1_000_000) / 100.0;
+        }
+    }
+
+    @TearDown
+    public void encerrar() {
+        umaThread.shutdown();
+    }
+
+    // Referência sem compensação (o total depende da ordem da soma)
+    @Benchmark
+    public double somaSimples() {
+        double total = 0;
+        for (int i = 0; i < linhas; i++) {
+            total += calculadora.calcularImposto(brasil, categorias[i], precos[i]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double carrinhoUmaThread() {
+        return calculadora.calcularImpostoCarrinho(brasil, categorias, precos, umaThread);
+    }
+
+    @Benchmark
+    public double carrinhoPoolComum() {
+        return calculadora.calcularImpostoCarrinho(brasil, categorias, precos);
+    }
+}
@@ -0,0 +1,80 @@
+package solid.o_solid_advanced;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ✅ Faixas progressivas com imposto acumulado pré-calculado (busca binária) contra o
+ * percurso faixa a faixa que a classe evita.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FaixasProgressivasBenchmark {
+    private static final int ITENS = 1024;
+
+    @Param({ "4", "16", "256" })
+    public int quantidadeFaixas;
+
+    private double[] inicios;
+    private double[] aliquotas;
+    private FaixasProgressivas faixas;
+    private double[] precos;
+
+    @Setup
+    public void preparar() {
+        inicios = new double[quantidadeFaixas];
+        aliquotas = new double[quantidadeFaixas];
+        for (int i = 0; i < quantidadeFaixas; i++) {
+            inicios[i] = i * 1_000.0;
+            aliquotas[i] = Math.min(0.5, i * 0.01);
+        }
+        faixas = new FaixasProgressivas(inicios, aliquotas);
+        Random aleatorio = new Random(42);
+        precos = new double[ITENS];
+        for (int i = 0; i < ITENS; i++) {
+            precos[i] = aleatorio.nextDouble() * quantidadeFaixas * 1_000.0;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITENS)
+    public double buscaBinaria() {
+        double total = 0;
+        for (int i = 0; i < ITENS; i++) {
+            total += faixas.imposto(precos[i]);
+        }
+        return total;
+    }
+
+    // Referência O(n): soma a parte do preço que cai em cada faixa
+    @Benchmark
+    @OperationsPerInvocation(ITENS)
+    public double percursoLinear() {
+        double total = 0;
+        for (int i = 0; i < ITENS; i++) {
+            double preco = precos[i];
+            for (int f = 0; f < quantidadeFaixas && preco > inicios[f]; f++) {
+                double fim = f + 1 < quantidadeFaixas ? Math.min(preco, inicios[f + 1]) : preco;
+                total += (fim - inicios[f]) * aliquotas[f];
+            }
+        }
+        return total;
+    }
+}
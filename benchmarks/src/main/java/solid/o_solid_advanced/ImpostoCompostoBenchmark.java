@@ -0,0 +1,80 @@
+package solid.o_solid_advanced;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solid.CargaImposto;
+
+/**
+ * ✅ Camadas de imposto fundidas (ImpostoComposto) contra a cadeia de calcular() por camada.
+ * As camadas alternam entre quatro classes, então a chamada da cadeia é megamórfica.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImpostoCompostoBenchmark {
+    private static final int ITENS = 1024;
+
+    @Param({ "2", "5", "10" })
+    public int camadas;
+
+    private RegraDeImposto[] cadeia;
+    private RegraDeImposto composto;
+    private String[] categorias;
+    private double[] precos;
+
+    @Setup
+    public void preparar() {
+        ImpostoTabelado[] disponiveis = {
+                new ImpostoBrasil(), new ImpostoEUA(), new ImpostoEuropa(),
+                new ImpostoCarregado(0.01, new String[] { "livro" }, new double[] { 0.02 }) };
+        cadeia = new RegraDeImposto[camadas];
+        ImpostoComposto.Construtor construtor = ImpostoComposto.construtor();
+        for (int i = 0; i < camadas; i++) {
+            ImpostoTabelado camada = disponiveis[i % disponiveis.length];
+            cadeia[i] = camada;
+            construtor.somar(camada);
+        }
+        composto = construtor.construir();
+        CargaImposto carga = new CargaImposto(ITENS, 1);
+        categorias = carga.categorias;
+        precos = carga.precos;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITENS)
+    public double cadeiaDeCamadas() {
+        double total = 0;
+        for (int i = 0; i < ITENS; i++) {
+            for (RegraDeImposto camada : cadeia) {
+                total += camada.calcular(categorias[i], precos[i]);
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITENS)
+    public double composto() {
+        double total = 0;
+        for (int i = 0; i < ITENS; i++) {
+            total += composto.calcular(categorias[i], precos[i]);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,76 @@
+package solid.o_solid_advanced;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ✅ Lote de um país (calcularImpostoLote) contra a mesma conta item a item pelo caminho por ID.
+ * Vale rodar com -prof perfasm para ver se o laço do lote foi vetorizado.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoteImpostoBenchmark {
+    @Param({ "1024", "1048576" })
+    public int itens;
+
+    private CalculadoraImposto calculadora;
+    private int brasil;
+    private int eua;
+    private int[] categorias;
+    private double[] precos;
+    private double[] saida;
+
+    @Setup
+    public void preparar() {
+        calculadora = new CalculadoraImposto();
+        brasil = calculadora.idPais("brasil");
+        eua = calculadora.idPais("eua");
+        Random aleatorio = new Random(42);
+        categorias = new int[itens];
+        precos = new double[itens];
+        saida = new double[itens];
+        int[] disponiveis = { Categorias.OUTROS, Categorias.ELETRONICO, Categorias.LIVRO, Categorias.ALIMENTO };
+        for (int i = 0; i < itens; i++) {
+            categorias[i] = disponiveis[aleatorio.nextInt(disponiveis.length)];
+            precos[i] = 1 + aleatorio.nextInt(1_000_000) / 100.0;
+        }
+    }
+
+    @Benchmark
+    public double[] itemAItem() {
+        for (int i = 0; i < itens; i++) {
+            saida[i] = calculadora.calcularImposto(brasil, categorias[i], precos[i]);
+        }
+        return saida;
+    }
+
+    @Benchmark
+    public double[] lote() {
+        calculadora.calcularImpostoLote(brasil, categorias, precos, saida);
+        return saida;
+    }
+
+    // Lotes seguidos de países diferentes: cada um usa a própria linha da foto, sem cópia por chamada
+    @Benchmark
+    public double[] lotePaisesAlternados() {
+        calculadora.calcularImpostoLote(brasil, categorias, precos, saida);
+        calculadora.calcularImpostoLote(eua, categorias, precos, saida);
+        return saida;
+    }
+}
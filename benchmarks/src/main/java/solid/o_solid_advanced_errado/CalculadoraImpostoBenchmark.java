@@ -0,0 +1,57 @@
+package solid.o_solid_advanced_errado;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solid.CargaImposto;
+import solid.FormaChamada;
+import solid.SaidaNula;
+
+/**
+ * ❌ Cadeia de if/else por país: aqui a "forma" é quantos ramos o laço percorre,
+ * já que não há chamada virtual nenhuma.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculadoraImpostoBenchmark {
+    private static final int ITENS = 1024;
+
+    @Param
+    public FormaChamada forma;
+
+    private CalculadoraImposto calculadora;
+    private CargaImposto carga;
+
+    @Setup
+    public void preparar() {
+        SaidaNula.silenciarConsole();
+        calculadora = new CalculadoraImposto();
+        carga = new CargaImposto(ITENS, forma.tipos());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITENS)
+    public double calcularImposto() {
+        double total = 0;
+        for (int i = 0; i < ITENS; i++) {
+            total += calculadora.calcularImposto(carga.paises[i], carga.categorias[i], carga.precos[i]);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,97 @@
+package solid.s_solid_advanced;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solid.CargaPacientes;
+import solid.SaidaNula;
+
+/**
+ * ✅ Gerenciadores separados: cadastro com índice de CPF (recusa repetidos em O(1)) e agenda
+ * indexada por horário e por paciente. Os dois primeiros benchmarks repetem os da versão errada;
+ * os demais medem o que a versão errada nem oferece (busca por CPF e consultas de um período).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClinicaBenchmark {
+    private static final int LOTE = 10_000;
+
+    @Param({ "1000", "100000" })
+    public int consultas;
+
+    private CargaPacientes carga;
+    private GerenciadorConsultas agenda;
+    private GerenciadorPacientes cadastrados;
+    private int proxima;
+
+    @Setup
+    public void preparar() {
+        Log.configurar(new RegistroAssincrono(SaidaNula.SAIDA, NivelLog.INFO, 8192));
+        carga = new CargaPacientes(Math.max(LOTE, consultas));
+        agenda = new GerenciadorConsultas();
+        cadastrados = new GerenciadorPacientes();
+        for (int i = 0; i < consultas; i++) {
+            agenda.marcarConsulta(carga.nomes[i], CargaPacientes.data(i));
+            cadastrados.cadastrarPaciente(carga.nomes[i], carga.cpfs[i], carga.telefones[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOTE)
+    public GerenciadorPacientes cadastrarPacientes() {
+        GerenciadorPacientes gerenciador = new GerenciadorPacientes();
+        for (int i = 0; i < LOTE; i++) {
+            gerenciador.cadastrarPaciente(carga.nomes[i], carga.cpfs[i], carga.telefones[i]);
+        }
+        return gerenciador;
+    }
+
+    @Benchmark
+    public void marcarECancelarConsulta() {
+        int i = proxima++ % consultas;
+        agenda.marcarConsulta(carga.nomes[i], "31/12/2024");
+        agenda.cancelarConsulta(carga.nomes[i], "31/12/2024");
+    }
+
+    @Benchmark
+    public Paciente buscarPorCpf() {
+        return cadastrados.buscarPorCpf(carga.cpfs[proxima++ % consultas]);
+    }
+
+    // O que restava sem o índice: percorrer a lista comparando CPFs
+    @Benchmark
+    public Paciente varrerListaPorCpf() {
+        long cpf = Cpf.empacotar(carga.cpfs[proxima++ % consultas]);
+        List<Paciente> pacientes = cadastrados.getPacientes();
+        for (int i = 0; i < pacientes.size(); i++) {
+            if (pacientes.get(i).getCpfNumerico() == cpf) {
+                return pacientes.get(i);
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public int consultasDaSemana() {
+        LocalDateTime inicio = LocalDateTime.of(2024, 1 + proxima++ % 12, 1, 0, 0);
+        return agenda.consultasEntre(inicio, inicio.plusDays(7)).size();
+    }
+}
@@ -0,0 +1,68 @@
+package solid.s_solid_advanced_errado;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solid.CargaPacientes;
+import solid.SaidaNula;
+
+/**
+ * ❌ Clínica que faz tudo: cadastro em lista (sem checar CPF repetido) e consultas como
+ * Strings "nome - data" numa lista, então cancelar é uma remoção O(n).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClinicaBenchmark {
+    private static final int LOTE = 10_000;
+
+    @Param({ "1000", "100000" })
+    public int consultas;
+
+    private CargaPacientes carga;
+    private Clinica agenda;
+    private int proxima;
+
+    @Setup
+    public void preparar() {
+        SaidaNula.silenciarConsole();
+        carga = new CargaPacientes(Math.max(LOTE, consultas));
+        agenda = new Clinica();
+        for (int i = 0; i < consultas; i++) {
+            agenda.marcarConsulta(carga.nomes[i], CargaPacientes.data(i));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOTE)
+    public Clinica cadastrarPacientes() {
+        Clinica clinica = new Clinica();
+        for (int i = 0; i < LOTE; i++) {
+            clinica.cadastrarPaciente(carga.nomes[i], carga.cpfs[i], carga.telefones[i]);
+        }
+        return clinica;
+    }
+
+    // Agenda com "consultas" marcadas: marca mais uma e a cancela, mantendo o tamanho
+    @Benchmark
+    public void marcarECancelarConsulta() {
+        int i = proxima++ % consultas;
+        agenda.marcarConsulta(carga.nomes[i], "31/12/2024");
+        agenda.cancelarConsulta(carga.nomes[i], "31/12/2024");
+    }
+}
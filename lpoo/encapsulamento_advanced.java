@@ -12,26 +12,463 @@
  *
  * A classe `ContaBancaria` implementa:
  * - Atributos privados (`titular`, `saldo` e `transacoes`) para manter a segurança dos dados.
- * - Métodos públicos para manipular saldo de forma controlada (`depositar`, `sacar`, `transferir`).
+ * - Métodos públicos para manipular saldo de forma controlada (`depositarEmCentavos`, `sacarEmCentavos`, `transferirEmCentavos`).
  * - Validações para evitar erros como saques maiores que o saldo ou valores inválidos.
  * - Um histórico de transações para auditoria e transparência.
  */
 
+ import java.io.PrintStream;
+ import java.math.RoundingMode;
  import java.util.ArrayList;
+ import java.util.Arrays;
  import java.util.List;
+ import java.util.concurrent.TimeUnit;
+ import java.util.concurrent.atomic.AtomicLong;
+ import java.util.concurrent.atomic.LongAdder;
+ import java.util.concurrent.locks.LockSupport;
+ 
+ // ✅ DINHEIRO EM PONTO FIXO: valores são long em centavos, sem erro de arredondamento binário
+ // Tudo é aritmética estática sobre long, então nada é alocado nem encaixotado. Fatores (ex.:
+ // alíquotas) viram milionésimos inteiros e a multiplicação é feita em 128 bits, com uma única
+ // etapa de arredondamento; um resultado fora do long lança ArithmeticException em vez de saturar.
+ final class Dinheiro {
+     public static final long ESCALA_FATOR = 1_000_000; // fatores com até 6 casas decimais são exatos
+     private static final double LIMITE_CENTAVOS = 0x1p63;
+ 
+     private Dinheiro() {
+     }
+ 
+     // Arredonda para centavos pelo valor decimal que o double representa (0.1 vira 10 centavos e
+     // 2.675 vira 268, como em BigDecimal.valueOf): a diferença de até 2 ulps entre o double e o
+     // meio centavo conta como empate, resolvido com HALF_EVEN.
+     public static long deReais(double reais) {
+         if (Double.isNaN(reais) || Double.isInfinite(reais)) {
+             throw new NumberFormatException("❌ Valor não numérico: " + reais);
+         }
+         double emCentavos = reais * 100;
+         double piso = Math.floor(emCentavos);
+         double fracao = emCentavos - piso;
+         double arredondado;
+         if (Math.abs(fracao - 0.5) <= 2 * Math.ulp(emCentavos)) {
+             arredondado = piso % 2 == 0 ? piso : piso + 1;
+         } else {
+             arredondado = fracao < 0.5 ? piso : piso + 1;
+         }
+         if (arredondado >= LIMITE_CENTAVOS || arredondado < -LIMITE_CENTAVOS) {
+             throw new ArithmeticException("❌ Valor fora do intervalo de centavos: " + reais);
+         }
+         return (long) arredondado;
+     }
+ 
+     // Fator decimal em milionésimos inteiros (0.15 vira 150000); casas além da sexta são arredondadas
+     public static long fatorEmMilionesimos(double fator) {
+         double escalado = Math.rint(fator * ESCALA_FATOR);
+         if (Double.isNaN(escalado) || escalado >= LIMITE_CENTAVOS || escalado < -LIMITE_CENTAVOS) {
+             throw new ArithmeticException("❌ Fator fora do intervalo: " + fator);
+         }
+         return (long) escalado;
+     }
+ 
+     public static long somar(long centavos, long outros) {
+         return Math.addExact(centavos, outros);
+     }
+ 
+     public static long subtrair(long centavos, long outros) {
+         return Math.subtractExact(centavos, outros);
+     }
+ 
+     // Quantidade inteira (ex.: 3 unidades) sem passar por double
+     public static long multiplicar(long centavos, long quantidade) {
+         return Math.multiplyExact(centavos, quantidade);
+     }
+ 
+     // ✅ Multiplica por um fator (ex.: alíquota) com uma única etapa de arredondamento
+     public static long multiplicar(long centavos, double fator, RoundingMode modo) {
+         return multiplicarPorMilionesimos(centavos, fatorEmMilionesimos(fator), modo);
+     }
+
+     // Produto exato dividido por ESCALA_FATOR; o resto da divisão decide o arredondamento
+     public static long multiplicarPorMilionesimos(long centavos, long milionesimos, RoundingMode modo) {
+         if (modo == RoundingMode.HALF_EVEN) {
+             return multiplicarMeioPar(centavos, milionesimos);
+         }
+         return multiplicarEm128Bits(centavos, milionesimos, modo);
+     }
+
+     // Caso geral: qualquer modo de arredondamento, produto em 128 bits sem sinal
+     private static long multiplicarEm128Bits(long centavos, long milionesimos, RoundingMode modo) {
+         boolean negativo = (centavos < 0) != (milionesimos < 0);
+         // Math.abs(Long.MIN_VALUE) continua negativo, mas lido sem sinal é exatamente 2^63
+         long a = Math.abs(centavos);
+         long b = Math.abs(milionesimos);
+         long baixo = a * b;
+         long alto = Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+         long quociente;
+         long resto;
+         if (alto == 0 && baixo >= 0) {
+             // Caso comum (preços e alíquotas reais): o produto cabe em 63 bits, uma divisão basta
+             quociente = baixo / ESCALA_FATOR;
+             resto = baixo - quociente * ESCALA_FATOR;
+         } else {
+             if (Long.compareUnsigned(alto, ESCALA_FATOR) >= 0) {
+                 throw new ArithmeticException("❌ Resultado fora do intervalo de centavos");
+             }
+             // Divisão longa em duas metades de 32 bits: o resto sempre cabe antes do deslocamento
+             long parcial = (alto << 32) | (baixo >>> 32);
+             long quocienteAlto = parcial / ESCALA_FATOR;
+             parcial = ((parcial % ESCALA_FATOR) << 32) | (baixo & 0xFFFFFFFFL);
+             quociente = (quocienteAlto << 32) + parcial / ESCALA_FATOR;
+             resto = parcial % ESCALA_FATOR;
+         }
+         if (quociente >= 0 && resto != 0 && arredondaParaCima(modo, resto, quociente, negativo)) {
+             quociente++;
+         }
+         // Magnitudes a partir de 2^63 (lidas com sinal, ficam negativas) não cabem no long
+         if (quociente < 0) {
+             throw new ArithmeticException("❌ Resultado fora do intervalo de centavos");
+         }
+         return negativo ? -quociente : quociente;
+     }
+
+     // ✅ Caso mais usado (impostos): produto que cabe no long, uma divisão por constante e o desempate no par
+     private static long multiplicarMeioPar(long centavos, long milionesimos) {
+         long produto = centavos * milionesimos;
+         if (Math.multiplyHigh(centavos, milionesimos) != (produto >> 63)) {
+             return multiplicarEm128Bits(centavos, milionesimos, RoundingMode.HALF_EVEN);
+         }
+         long quociente = produto / ESCALA_FATOR; // trunca em direção a zero: o resto tem o sinal do produto
+         long resto = Math.abs(produto - quociente * ESCALA_FATOR);
+         long meio = ESCALA_FATOR / 2;
+         if (resto > meio || (resto == meio && (quociente & 1) != 0)) {
+             quociente += produto < 0 ? -1 : 1;
+         }
+         return quociente;
+     }
+
+     // Decide se a magnitude truncada sobe um centavo (resto > 0, meio = ESCALA_FATOR / 2)
+     private static boolean arredondaParaCima(RoundingMode modo, long resto, long quociente, boolean negativo) {
+         long meio = ESCALA_FATOR / 2;
+         switch (modo) {
+             case UP:
+                 return true;
+             case DOWN:
+                 return false;
+             case CEILING:
+                 return !negativo;
+             case FLOOR:
+                 return negativo;
+             case HALF_UP:
+                 return resto >= meio;
+             case HALF_DOWN:
+                 return resto > meio;
+             case HALF_EVEN:
+                 return resto > meio || (resto == meio && (quociente & 1) != 0);
+             default:
+                 throw new ArithmeticException("❌ Arredondamento necessário");
+         }
+     }
+ 
+     // Escreve "R$ 1234,56" direto no destino, sem criar Strings intermediárias
+     public static void formatar(long centavos, StringBuilder destino) {
+         // Divide antes de trocar o sinal: -Long.MIN_VALUE estouraria, mas o quociente e o resto não
+         long reais = Math.abs(centavos / 100);
+         long resto = Math.abs(centavos % 100);
+         if (centavos < 0) {
+             destino.append('-');
+         }
+         destino.append("R$ ").append(reais).append(',');
+         if (resto < 10) {
+             destino.append('0');
+         }
+         destino.append(resto);
+     }
+ 
+     public static String formatar(long centavos) {
+         StringBuilder texto = new StringBuilder(24);
+         formatar(centavos, texto);
+         return texto.toString();
+     }
+ }
+ 
+ // ✅ NÍVEIS DE LOG (do mais detalhado ao mais grave)
+ enum NivelLog {
+     DEBUG, INFO, AVISO, ERRO
+ }
+ 
+ // ✅ EVENTO DE LOG PRÉ-ALOCADO (um rascunho reutilizado por thread; argumentos primitivos não viram objetos)
+ // Uso: Log.info("Pagamento de R$ {} para {}").com(valor).com(nome).publicar();
+ // A posição no anel só é reservada dentro de publicar(): um evento abandonado (exceção ao calcular
+ // um argumento, publicar() esquecido) não deixa buraco no anel nem trava a thread de escrita.
+ class EventoLog {
+     static final EventoLog DESCARTADO = new EventoLog(null);
+     private static final int MAX_ARGUMENTOS = 4;
+     private static final byte TEXTO = 0;
+     private static final byte DECIMAL = 1;
+     private static final byte INTEIRO = 2;
+ 
+     private final RegistroAssincrono destino; // null: evento descartado ou posição do anel
+     private final String[] textos = new String[MAX_ARGUMENTOS];
+     private final long[] valores = new long[MAX_ARGUMENTOS];
+     private final byte[] tipos = new byte[MAX_ARGUMENTOS];
+     private String modelo;
+     private int argumentos;
+     private volatile long publicado = -1;
+     boolean emUso;
+ 
+     EventoLog(RegistroAssincrono destino) {
+         this.destino = destino;
+     }
+ 
+     void preparar(String modelo) {
+         this.modelo = modelo;
+         this.argumentos = 0;
+         this.emUso = true;
+     }
+ 
+     public EventoLog com(String texto) {
+         if (destino != null && argumentos < MAX_ARGUMENTOS) {
+             tipos[argumentos] = TEXTO;
+             textos[argumentos++] = texto;
+         }
+         return this;
+     }
+ 
+     public EventoLog com(double valor) {
+         if (destino != null && argumentos < MAX_ARGUMENTOS) {
+             tipos[argumentos] = DECIMAL;
+             valores[argumentos++] = Double.doubleToRawLongBits(valor);
+         }
+         return this;
+     }
+ 
+     public EventoLog com(long valor) {
+         if (destino != null && argumentos < MAX_ARGUMENTOS) {
+             tipos[argumentos] = INTEIRO;
+             valores[argumentos++] = valor;
+         }
+         return this;
+     }
+ 
+     // ✅ Obrigatório: entrega o evento à thread de escrita (chamadas repetidas são ignoradas)
+     public void publicar() {
+         if (destino != null && emUso) {
+             emUso = false;
+             destino.publicar(this);
+             Arrays.fill(textos, 0, argumentos, null);
+         }
+     }
+ 
+     // Copia o rascunho para a posição reservada do anel e a libera para a escrita
+     void copiarDe(EventoLog rascunho, long sequencia) {
+         modelo = rascunho.modelo;
+         argumentos = rascunho.argumentos;
+         System.arraycopy(rascunho.textos, 0, textos, 0, argumentos);
+         System.arraycopy(rascunho.valores, 0, valores, 0, argumentos);
+         System.arraycopy(rascunho.tipos, 0, tipos, 0, argumentos);
+         publicado = sequencia;
+     }
+ 
+     boolean publicadoEm(long sequencia) {
+         return publicado == sequencia;
+     }
+ 
+     // Formata substituindo cada "{}" pelo próximo argumento (executado só na thread de escrita)
+     void formatar(StringBuilder saida) {
+         int argumento = 0;
+         for (int i = 0; i < modelo.length(); i++) {
+             char c = modelo.charAt(i);
+             if (c == '{' && i + 1 < modelo.length() && modelo.charAt(i + 1) == '}' && argumento < argumentos) {
+                 if (tipos[argumento] == TEXTO) {
+                     saida.append(textos[argumento]);
+                 } else if (tipos[argumento] == DECIMAL) {
+                     saida.append(Double.longBitsToDouble(valores[argumento]));
+                 } else {
+                     saida.append(valores[argumento]);
+                 }
+                 argumento++;
+                 i++;
+             } else {
+                 saida.append(c);
+             }
+         }
+         Arrays.fill(textos, null);
+     }
+ }
+ 
+ // ✅ DESTINO DE EVENTOS DE LOG (abstração plugável)
+ interface RegistroEventos {
+     // Modo sem custo para benchmarks: nada é formatado nem escrito
+     RegistroEventos NENHUM = (nivel, modelo) -> EventoLog.DESCARTADO;
+ 
+     EventoLog evento(NivelLog nivel, String modelo);
+ 
+     // Aguarda a escrita do que já foi publicado (destinos síncronos não precisam fazer nada)
+     default void descarregar() {
+     }
+ }
+ 
+ // ✅ LOG ASSÍNCRONO EM ANEL: as threads de negócio só preenchem um rascunho próprio e, em publicar(),
+ // copiam para uma posição do anel; formatação e escrita acontecem numa única thread,
+ // sem disputar o lock do System.out. Com o anel cheio, a thread espera com recuo exponencial
+ // por ~2 ms e, se ainda não houver espaço, descarta o evento e conta (nunca fica presa).
+ class RegistroAssincrono implements RegistroEventos {
+     private static final int TENTATIVAS_ANEL_CHEIO = 10;
+ 
+     private final EventoLog[] anel;
+     private final int mascara;
+     private final NivelLog nivelMinimo;
+     private final PrintStream saida;
+     private final AtomicLong cursor = new AtomicLong();
+     private final LongAdder descartados = new LongAdder();
+     private final ThreadLocal<EventoLog> rascunhos = ThreadLocal.withInitial(() -> new EventoLog(this));
+     private volatile long consumido;
+ 
+     public RegistroAssincrono(PrintStream saida, NivelLog nivelMinimo, int capacidade) {
+         if (Integer.bitCount(capacidade) != 1) {
+             throw new IllegalArgumentException("❌ Capacidade do anel deve ser potência de 2!");
+         }
+         this.anel = new EventoLog[capacidade];
+         for (int i = 0; i < capacidade; i++) {
+             anel[i] = new EventoLog(null);
+         }
+         this.mascara = capacidade - 1;
+         this.nivelMinimo = nivelMinimo;
+         this.saida = saida;
+         Thread escritor = new Thread(this::escrever, "log-assincrono");
+         escritor.setDaemon(true);
+         escritor.start();
+         Runtime.getRuntime().addShutdownHook(new Thread(this::descarregar));
+     }
+ 
+     public EventoLog evento(NivelLog nivel, String modelo) {
+         if (nivel.compareTo(nivelMinimo) < 0) {
+             return EventoLog.DESCARTADO;
+         }
+         EventoLog rascunho = rascunhos.get();
+         if (rascunho.emUso) {
+             // Log chamado enquanto outro evento da mesma thread é montado (ou um foi abandonado)
+             rascunho = new EventoLog(this);
+             rascunhos.set(rascunho);
+         }
+         rascunho.preparar(modelo);
+         return rascunho;
+     }
+ 
+     // Reserva só quando há espaço: nenhuma posição reservada fica sem ser preenchida logo em seguida
+     void publicar(EventoLog rascunho) {
+         long sequencia;
+         int tentativas = 0;
+         while (true) {
+             sequencia = cursor.get();
+             if (sequencia - consumido >= anel.length) {
+                 if (++tentativas > TENTATIVAS_ANEL_CHEIO) {
+                     descartados.increment();
+                     return;
+                 }
+                 LockSupport.parkNanos(1_000L << tentativas); // 2 µs, 4 µs, ... ~1 ms
+             } else if (cursor.compareAndSet(sequencia, sequencia + 1)) {
+                 break;
+             }
+         }
+         anel[(int) (sequencia & mascara)].copiarDe(rascunho, sequencia);
+     }
+ 
+     public long descartados() {
+         return descartados.sum();
+     }
+ 
+     // ✅ Espera (até 1 s) a escrita de tudo que já foi publicado; chamado também ao encerrar a JVM
+     @Override
+     public void descarregar() {
+         long alvo = cursor.get();
+         long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+         while (consumido < alvo && System.nanoTime() < limite) {
+             LockSupport.parkNanos(100_000);
+         }
+         saida.flush();
+     }
+ 
+     private void escrever() {
+         StringBuilder linha = new StringBuilder(256);
+         long descartadosInformados = 0;
+         while (true) {
+             if (!escreverProximo(linha)) {
+                 long total = descartados.sum();
+                 if (total > descartadosInformados) {
+                     saida.println("⚠️ Log: " + (total - descartadosInformados) + " evento(s) descartado(s) com o anel cheio");
+                     descartadosInformados = total;
+                 }
+                 LockSupport.parkNanos(50_000);
+             }
+         }
+     }
+ 
+     private boolean escreverProximo(StringBuilder linha) {
+         long proximo = consumido;
+         EventoLog evento = anel[(int) (proximo & mascara)];
+         if (!evento.publicadoEm(proximo)) {
+             return false;
+         }
+         linha.setLength(0);
+         evento.formatar(linha);
+         saida.println(linha);
+         consumido = proximo + 1;
+         return true;
+     }
+ }
+ 
+ // ✅ PONTO DE ACESSO AO LOG (troque o destino com Log.configurar, ex.: RegistroEventos.NENHUM)
+ // O destino padrão inicia, no primeiro uso de Log, uma thread daemon de escrita e um gancho de
+ // desligamento que esvazia o anel. Quem imprime direto no System.out deve chamar Log.descarregar()
+ // antes, senão essa saída pode aparecer intercalada fora de ordem com as linhas de log.
+ final class Log {
+     private static volatile RegistroEventos destino = new RegistroAssincrono(System.out, NivelLog.INFO, 8192);
+ 
+     private Log() {
+     }
+ 
+     public static void configurar(RegistroEventos novoDestino) {
+         destino = novoDestino;
+     }
+ 
+     public static void descarregar() {
+         destino.descarregar();
+     }
+ 
+     public static EventoLog debug(String modelo) {
+         return destino.evento(NivelLog.DEBUG, modelo);
+     }
+ 
+     public static EventoLog info(String modelo) {
+         return destino.evento(NivelLog.INFO, modelo);
+     }
+ 
+     public static EventoLog aviso(String modelo) {
+         return destino.evento(NivelLog.AVISO, modelo);
+     }
+ 
+     public static EventoLog erro(String modelo) {
+         return destino.evento(NivelLog.ERRO, modelo);
+     }
+ }
  
  // Classe ContaBancaria encapsulada
  class ContaBancaria {
      private String titular;
-     private double saldo;
+     private long saldo; // em centavos (veja Dinheiro)
      private final List<String> transacoes; // Lista de transações (histórico)
  
-     // Construtor: inicializa conta com titular e saldo inicial
-     public ContaBancaria(String titular, double saldoInicial) {
+     // Construtor privado: contas são abertas por abrirEmCentavos, com a unidade explícita no nome
+     private ContaBancaria(String titular, long saldoInicial) {
          this.titular = titular;
          this.saldo = saldoInicial > 0 ? saldoInicial : 0; // Garante saldo não negativo
          this.transacoes = new ArrayList<>();
-         registrarTransacao("Conta criada com saldo inicial: R$ " + this.saldo);
+         registrarTransacao("Conta criada com saldo inicial: " + Dinheiro.formatar(this.saldo));
+     }
+ 
+     // Fábrica: saldo inicial em centavos (ex.: Dinheiro.deReais(500))
+     public static ContaBancaria abrirEmCentavos(String titular, long saldoInicialCentavos) {
+         return new ContaBancaria(titular, saldoInicialCentavos);
      }
  
      // Método privado para registrar transações no histórico
@@ -40,7 +477,7 @@
      }
  
      // Método getter para obter o saldo (somente leitura)
-     public double getSaldo() {
+     public long getSaldoEmCentavos() {
          return saldo;
      }
  
@@ -52,43 +489,43 @@
      // Método setter para alterar o titular (com validação)
      public void setTitular(String novoTitular) {
          if (novoTitular == null || novoTitular.isEmpty()) {
-             System.out.println("Erro: Nome do titular inválido!");
+             Log.erro("Erro: Nome do titular inválido!").publicar();
              return;
          }
          this.titular = novoTitular;
          registrarTransacao("Titular alterado para: " + novoTitular);
      }
  
-     // Método para depositar dinheiro na conta
-     public void depositar(double valor) {
+     // Método para depositar dinheiro na conta (valores em centavos)
+     public void depositarEmCentavos(long valor) {
          if (valor <= 0) {
-             System.out.println("Erro: Depósito inválido!");
+             Log.erro("Erro: Depósito inválido!").publicar();
              return;
          }
-         saldo += valor;
-         registrarTransacao("Depósito de R$ " + valor);
+         saldo = Dinheiro.somar(saldo, valor);
+         registrarTransacao("Depósito de " + Dinheiro.formatar(valor));
      }
  
      // Método para sacar dinheiro da conta (com validação de saldo)
-     public boolean sacar(double valor) {
+     public boolean sacarEmCentavos(long valor) {
          if (valor <= 0) {
-             System.out.println("Erro: Valor de saque inválido!");
+             Log.erro("Erro: Valor de saque inválido!").publicar();
              return false;
          }
          if (valor > saldo) {
-             System.out.println("Erro: Saldo insuficiente!");
+             Log.erro("Erro: Saldo insuficiente!").publicar();
              return false;
          }
-         saldo -= valor;
-         registrarTransacao("Saque de R$ " + valor);
+         saldo = Dinheiro.subtrair(saldo, valor);
+         registrarTransacao("Saque de " + Dinheiro.formatar(valor));
          return true;
      }
  
      // Método para transferir dinheiro para outra conta (seguindo o encapsulamento)
-     public boolean transferir(ContaBancaria destino, double valor) {
-         if (this.sacar(valor)) { // Se o saque for bem-sucedido
-             destino.depositar(valor);
-             registrarTransacao("Transferência de R$ " + valor + " para " + destino.getTitular());
+     public boolean transferirEmCentavos(ContaBancaria destino, long valor) {
+         if (this.sacarEmCentavos(valor)) { // Se o saque for bem-sucedido
+             destino.depositarEmCentavos(valor);
+             registrarTransacao("Transferência de " + Dinheiro.formatar(valor) + " para " + destino.getTitular());
              return true;
          }
          return false;
@@ -96,6 +533,7 @@
  
      // Método público para exibir o histórico de transações
      public void exibirHistorico() {
+         Log.descarregar(); // mensagens de erro já publicadas saem antes do histórico
          System.out.println("\n📜 Histórico de transações da conta de " + titular + ":");
          for (String transacao : transacoes) {
              System.out.println(" - " + transacao);
@@ -107,13 +545,13 @@
 //  public class Main {
 //      public static void main(String[] args) {
 //          // Criando duas contas bancárias
-//          ContaBancaria conta1 = new ContaBancaria("João", 500);
-//          ContaBancaria conta2 = new ContaBancaria("Maria", 300);
+//          ContaBancaria conta1 = ContaBancaria.abrirEmCentavos("João", Dinheiro.deReais(500));
+//          ContaBancaria conta2 = ContaBancaria.abrirEmCentavos("Maria", Dinheiro.deReais(300));
  
 //          // Realizando operações bancárias
-//          conta1.depositar(200);
-//          conta1.sacar(100);
-//          conta1.transferir(conta2, 250);
+//          conta1.depositarEmCentavos(Dinheiro.deReais(200));
+//          conta1.sacarEmCentavos(Dinheiro.deReais(100));
+//          conta1.transferirEmCentavos(conta2, Dinheiro.deReais(250));
  
 //          // Alterando titular da conta
 //          conta1.setTitular("João Silva");
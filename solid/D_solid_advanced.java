@@ -29,27 +29,849 @@
  *    - Isso tornaria o sistema rígido e difícil de expandir.
  */
 
+ import java.io.IOException;
+ import java.io.PrintStream;
+ import java.io.UncheckedIOException;
+ import java.math.RoundingMode;
+ import java.nio.ByteBuffer;
+ import java.nio.MappedByteBuffer;
+ import java.nio.channels.FileChannel;
+ import java.nio.charset.StandardCharsets;
+ import java.nio.file.Files;
+ import java.nio.file.Path;
+ import java.nio.file.StandardOpenOption;
  import java.util.ArrayList;
+ import java.util.Arrays;
+ import java.util.Collection;
+ import java.util.Comparator;
+ import java.util.LinkedHashMap;
  import java.util.List;
+ import java.util.Map;
+ import java.util.Random;
+ import java.util.concurrent.ArrayBlockingQueue;
+ import java.util.concurrent.BlockingQueue;
+ import java.util.concurrent.CompletableFuture;
+ import java.util.concurrent.ConcurrentHashMap;
+ import java.util.concurrent.ConcurrentLinkedQueue;
+ import java.util.concurrent.ExecutionException;
+ import java.util.concurrent.ExecutorCompletionService;
+ import java.util.concurrent.ExecutorService;
+ import java.util.concurrent.Executors;
+ import java.util.concurrent.Future;
+ import java.util.concurrent.ThreadLocalRandom;
+ import java.util.concurrent.TimeUnit;
+ import java.util.concurrent.atomic.AtomicBoolean;
+ import java.util.concurrent.atomic.AtomicInteger;
+ import java.util.concurrent.atomic.AtomicLong;
+ import java.util.concurrent.atomic.AtomicLongArray;
+ import java.util.concurrent.atomic.AtomicReference;
+ import java.util.concurrent.atomic.AtomicReferenceArray;
+ import java.util.concurrent.atomic.LongAdder;
+ import java.util.concurrent.locks.LockSupport;
+ import java.util.function.BooleanSupplier;
+ import java.util.function.Consumer;
+ import java.util.stream.Collectors;
+ import java.util.stream.Stream;
+ import java.util.zip.CRC32C;
+ 
+ // ✅ DINHEIRO EM PONTO FIXO: valores são long em centavos, sem erro de arredondamento binário
+ // Tudo é aritmética estática sobre long, então nada é alocado nem encaixotado. Fatores (ex.:
+ // alíquotas) viram milionésimos inteiros e a multiplicação é feita em 128 bits, com uma única
+ // etapa de arredondamento; um resultado fora do long lança ArithmeticException em vez de saturar.
+ final class Dinheiro {
+     public static final long ESCALA_FATOR = 1_000_000; // fatores com até 6 casas decimais são exatos
+     private static final double LIMITE_CENTAVOS = 0x1p63;
+ 
+     private Dinheiro() {
+     }
+ 
+     // Arredonda para centavos pelo valor decimal que o double representa (0.1 vira 10 centavos e
+     // 2.675 vira 268, como em BigDecimal.valueOf): a diferença de até 2 ulps entre o double e o
+     // meio centavo conta como empate, resolvido com HALF_EVEN.
+     public static long deReais(double reais) {
+         if (Double.isNaN(reais) || Double.isInfinite(reais)) {
+             throw new NumberFormatException("❌ Valor não numérico: " + reais);
+         }
+         double emCentavos = reais * 100;
+         double piso = Math.floor(emCentavos);
+         double fracao = emCentavos - piso;
+         double arredondado;
+         if (Math.abs(fracao - 0.5) <= 2 * Math.ulp(emCentavos)) {
+             arredondado = piso % 2 == 0 ? piso : piso + 1;
+         } else {
+             arredondado = fracao < 0.5 ? piso : piso + 1;
+         }
+         if (arredondado >= LIMITE_CENTAVOS || arredondado < -LIMITE_CENTAVOS) {
+             throw new ArithmeticException("❌ Valor fora do intervalo de centavos: " + reais);
+         }
+         return (long) arredondado;
+     }
+ 
+     // Fator decimal em milionésimos inteiros (0.15 vira 150000); casas além da sexta são arredondadas
+     public static long fatorEmMilionesimos(double fator) {
+         double escalado = Math.rint(fator * ESCALA_FATOR);
+         if (Double.isNaN(escalado) || escalado >= LIMITE_CENTAVOS || escalado < -LIMITE_CENTAVOS) {
+             throw new ArithmeticException("❌ Fator fora do intervalo: " + fator);
+         }
+         return (long) escalado;
+     }
+ 
+     public static long somar(long centavos, long outros) {
+         return Math.addExact(centavos, outros);
+     }
+ 
+     public static long subtrair(long centavos, long outros) {
+         return Math.subtractExact(centavos, outros);
+     }
+ 
+     // Quantidade inteira (ex.: 3 unidades) sem passar por double
+     public static long multiplicar(long centavos, long quantidade) {
+         return Math.multiplyExact(centavos, quantidade);
+     }
+ 
+     // ✅ Multiplica por um fator (ex.: alíquota) com uma única etapa de arredondamento
+     public static long multiplicar(long centavos, double fator, RoundingMode modo) {
+         return multiplicarPorMilionesimos(centavos, fatorEmMilionesimos(fator), modo);
+     }
+
+     // Produto exato dividido por ESCALA_FATOR; o resto da divisão decide o arredondamento
+     public static long multiplicarPorMilionesimos(long centavos, long milionesimos, RoundingMode modo) {
+         if (modo == RoundingMode.HALF_EVEN) {
+             return multiplicarMeioPar(centavos, milionesimos);
+         }
+         return multiplicarEm128Bits(centavos, milionesimos, modo);
+     }
+
+     // Caso geral: qualquer modo de arredondamento, produto em 128 bits sem sinal
+     private static long multiplicarEm128Bits(long centavos, long milionesimos, RoundingMode modo) {
+         boolean negativo = (centavos < 0) != (milionesimos < 0);
+         // Math.abs(Long.MIN_VALUE) continua negativo, mas lido sem sinal é exatamente 2^63
+         long a = Math.abs(centavos);
+         long b = Math.abs(milionesimos);
+         long baixo = a * b;
+         long alto = Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+         long quociente;
+         long resto;
+         if (alto == 0 && baixo >= 0) {
+             // Caso comum (preços e alíquotas reais): o produto cabe em 63 bits, uma divisão basta
+             quociente = baixo / ESCALA_FATOR;
+             resto = baixo - quociente * ESCALA_FATOR;
+         } else {
+             if (Long.compareUnsigned(alto, ESCALA_FATOR) >= 0) {
+                 throw new ArithmeticException("❌ Resultado fora do intervalo de centavos");
+             }
+             // Divisão longa em duas metades de 32 bits: o resto sempre cabe antes do deslocamento
+             long parcial = (alto << 32) | (baixo >>> 32);
+             long quocienteAlto = parcial / ESCALA_FATOR;
+             parcial = ((parcial % ESCALA_FATOR) << 32) | (baixo & 0xFFFFFFFFL);
+             quociente = (quocienteAlto << 32) + parcial / ESCALA_FATOR;
+             resto = parcial % ESCALA_FATOR;
+         }
+         if (quociente >= 0 && resto != 0 && arredondaParaCima(modo, resto, quociente, negativo)) {
+             quociente++;
+         }
+         // Magnitudes a partir de 2^63 (lidas com sinal, ficam negativas) não cabem no long
+         if (quociente < 0) {
+             throw new ArithmeticException("❌ Resultado fora do intervalo de centavos");
+         }
+         return negativo ? -quociente : quociente;
+     }
+
+     // ✅ Caso mais usado (impostos): produto que cabe no long, uma divisão por constante e o desempate no par
+     private static long multiplicarMeioPar(long centavos, long milionesimos) {
+         long produto = centavos * milionesimos;
+         if (Math.multiplyHigh(centavos, milionesimos) != (produto >> 63)) {
+             return multiplicarEm128Bits(centavos, milionesimos, RoundingMode.HALF_EVEN);
+         }
+         long quociente = produto / ESCALA_FATOR; // trunca em direção a zero: o resto tem o sinal do produto
+         long resto = Math.abs(produto - quociente * ESCALA_FATOR);
+         long meio = ESCALA_FATOR / 2;
+         if (resto > meio || (resto == meio && (quociente & 1) != 0)) {
+             quociente += produto < 0 ? -1 : 1;
+         }
+         return quociente;
+     }
+
+     // Decide se a magnitude truncada sobe um centavo (resto > 0, meio = ESCALA_FATOR / 2)
+     private static boolean arredondaParaCima(RoundingMode modo, long resto, long quociente, boolean negativo) {
+         long meio = ESCALA_FATOR / 2;
+         switch (modo) {
+             case UP:
+                 return true;
+             case DOWN:
+                 return false;
+             case CEILING:
+                 return !negativo;
+             case FLOOR:
+                 return negativo;
+             case HALF_UP:
+                 return resto >= meio;
+             case HALF_DOWN:
+                 return resto > meio;
+             case HALF_EVEN:
+                 return resto > meio || (resto == meio && (quociente & 1) != 0);
+             default:
+                 throw new ArithmeticException("❌ Arredondamento necessário");
+         }
+     }
+ 
+     // Escreve "R$ 1234,56" direto no destino, sem criar Strings intermediárias
+     public static void formatar(long centavos, StringBuilder destino) {
+         // Divide antes de trocar o sinal: -Long.MIN_VALUE estouraria, mas o quociente e o resto não
+         long reais = Math.abs(centavos / 100);
+         long resto = Math.abs(centavos % 100);
+         if (centavos < 0) {
+             destino.append('-');
+         }
+         destino.append("R$ ").append(reais).append(',');
+         if (resto < 10) {
+             destino.append('0');
+         }
+         destino.append(resto);
+     }
+ 
+     public static String formatar(long centavos) {
+         StringBuilder texto = new StringBuilder(24);
+         formatar(centavos, texto);
+         return texto.toString();
+     }
+ }
+ 
+ // ✅ NÍVEIS DE LOG (do mais detalhado ao mais grave)
+ enum NivelLog {
+     DEBUG, INFO, AVISO, ERRO
+ }
+ 
+ // ✅ EVENTO DE LOG PRÉ-ALOCADO (um rascunho reutilizado por thread; argumentos primitivos não viram objetos)
+ // Uso: Log.info("Pagamento de R$ {} para {}").com(valor).com(nome).publicar();
+ // A posição no anel só é reservada dentro de publicar(): um evento abandonado (exceção ao calcular
+ // um argumento, publicar() esquecido) não deixa buraco no anel nem trava a thread de escrita.
+ class EventoLog {
+     static final EventoLog DESCARTADO = new EventoLog(null);
+     private static final int MAX_ARGUMENTOS = 4;
+     private static final byte TEXTO = 0;
+     private static final byte DECIMAL = 1;
+     private static final byte INTEIRO = 2;
+     private static final byte DINHEIRO = 3;
+ 
+     private final RegistroAssincrono destino; // null: evento descartado ou posição do anel
+     private final String[] textos = new String[MAX_ARGUMENTOS];
+     private final long[] valores = new long[MAX_ARGUMENTOS];
+     private final byte[] tipos = new byte[MAX_ARGUMENTOS];
+     private String modelo;
+     private int argumentos;
+     private volatile long publicado = -1;
+     boolean emUso;
+ 
+     EventoLog(RegistroAssincrono destino) {
+         this.destino = destino;
+     }
+ 
+     void preparar(String modelo) {
+         this.modelo = modelo;
+         this.argumentos = 0;
+         this.emUso = true;
+     }
+ 
+     public EventoLog com(String texto) {
+         if (destino != null && argumentos < MAX_ARGUMENTOS) {
+             tipos[argumentos] = TEXTO;
+             textos[argumentos++] = texto;
+         }
+         return this;
+     }
+ 
+     public EventoLog com(double valor) {
+         if (destino != null && argumentos < MAX_ARGUMENTOS) {
+             tipos[argumentos] = DECIMAL;
+             valores[argumentos++] = Double.doubleToRawLongBits(valor);
+         }
+         return this;
+     }
+ 
+     public EventoLog com(long valor) {
+         if (destino != null && argumentos < MAX_ARGUMENTOS) {
+             tipos[argumentos] = INTEIRO;
+             valores[argumentos++] = valor;
+         }
+         return this;
+     }
+ 
+     // Valor em centavos, escrito como "R$ 12,34"
+     public EventoLog comDinheiro(long centavos) {
+         if (destino != null && argumentos < MAX_ARGUMENTOS) {
+             tipos[argumentos] = DINHEIRO;
+             valores[argumentos++] = centavos;
+         }
+         return this;
+     }
+ 
+     // ✅ Obrigatório: entrega o evento à thread de escrita (chamadas repetidas são ignoradas)
+     public void publicar() {
+         if (destino != null && emUso) {
+             emUso = false;
+             destino.publicar(this);
+             Arrays.fill(textos, 0, argumentos, null);
+         }
+     }
+ 
+     // Copia o rascunho para a posição reservada do anel e a libera para a escrita
+     void copiarDe(EventoLog rascunho, long sequencia) {
+         modelo = rascunho.modelo;
+         argumentos = rascunho.argumentos;
+         System.arraycopy(rascunho.textos, 0, textos, 0, argumentos);
+         System.arraycopy(rascunho.valores, 0, valores, 0, argumentos);
+         System.arraycopy(rascunho.tipos, 0, tipos, 0, argumentos);
+         publicado = sequencia;
+     }
+ 
+     boolean publicadoEm(long sequencia) {
+         return publicado == sequencia;
+     }
+ 
+     // Formata substituindo cada "{}" pelo próximo argumento (executado só na thread de escrita)
+     void formatar(StringBuilder saida) {
+         int argumento = 0;
+         for (int i = 0; i < modelo.length(); i++) {
+             char c = modelo.charAt(i);
+             if (c == '{' && i + 1 < modelo.length() && modelo.charAt(i + 1) == '}' && argumento < argumentos) {
+                 if (tipos[argumento] == TEXTO) {
+                     saida.append(textos[argumento]);
+                 } else if (tipos[argumento] == DECIMAL) {
+                     saida.append(Double.longBitsToDouble(valores[argumento]));
+                 } else if (tipos[argumento] == DINHEIRO) {
+                     Dinheiro.formatar(valores[argumento], saida);
+                 } else {
+                     saida.append(valores[argumento]);
+                 }
+                 argumento++;
+                 i++;
+             } else {
+                 saida.append(c);
+             }
+         }
+         Arrays.fill(textos, null);
+     }
+ }
+ 
+ // ✅ DESTINO DE EVENTOS DE LOG (abstração plugável)
+ interface RegistroEventos {
+     // Modo sem custo para benchmarks: nada é formatado nem escrito
+     RegistroEventos NENHUM = (nivel, modelo) -> EventoLog.DESCARTADO;
+ 
+     EventoLog evento(NivelLog nivel, String modelo);
+ 
+     // Aguarda a escrita do que já foi publicado (destinos síncronos não precisam fazer nada)
+     default void descarregar() {
+     }
+ }
+ 
+ // ✅ LOG ASSÍNCRONO EM ANEL: as threads de negócio só preenchem um rascunho próprio e, em publicar(),
+ // copiam para uma posição do anel; formatação e escrita acontecem numa única thread,
+ // sem disputar o lock do System.out. Com o anel cheio, a thread espera com recuo exponencial
+ // por ~2 ms e, se ainda não houver espaço, descarta o evento e conta (nunca fica presa).
+ class RegistroAssincrono implements RegistroEventos {
+     private static final int TENTATIVAS_ANEL_CHEIO = 10;
+ 
+     private final EventoLog[] anel;
+     private final int mascara;
+     private final NivelLog nivelMinimo;
+     private final PrintStream saida;
+     private final AtomicLong cursor = new AtomicLong();
+     private final LongAdder descartados = new LongAdder();
+     private final ThreadLocal<EventoLog> rascunhos = ThreadLocal.withInitial(() -> new EventoLog(this));
+     private volatile long consumido;
+ 
+     public RegistroAssincrono(PrintStream saida, NivelLog nivelMinimo, int capacidade) {
+         if (Integer.bitCount(capacidade) != 1) {
+             throw new IllegalArgumentException("❌ Capacidade do anel deve ser potência de 2!");
+         }
+         this.anel = new EventoLog[capacidade];
+         for (int i = 0; i < capacidade; i++) {
+             anel[i] = new EventoLog(null);
+         }
+         this.mascara = capacidade - 1;
+         this.nivelMinimo = nivelMinimo;
+         this.saida = saida;
+         Thread escritor = new Thread(this::escrever, "log-assincrono");
+         escritor.setDaemon(true);
+         escritor.start();
+         Runtime.getRuntime().addShutdownHook(new Thread(this::descarregar));
+     }
+ 
+     public EventoLog evento(NivelLog nivel, String modelo) {
+         if (nivel.compareTo(nivelMinimo) < 0) {
+             return EventoLog.DESCARTADO;
+         }
+         EventoLog rascunho = rascunhos.get();
+         if (rascunho.emUso) {
+             // Log chamado enquanto outro evento da mesma thread é montado (ou um foi abandonado)
+             rascunho = new EventoLog(this);
+             rascunhos.set(rascunho);
+         }
+         rascunho.preparar(modelo);
+         return rascunho;
+     }
+ 
+     // Reserva só quando há espaço: nenhuma posição reservada fica sem ser preenchida logo em seguida
+     void publicar(EventoLog rascunho) {
+         long sequencia;
+         int tentativas = 0;
+         while (true) {
+             sequencia = cursor.get();
+             if (sequencia - consumido >= anel.length) {
+                 if (++tentativas > TENTATIVAS_ANEL_CHEIO) {
+                     descartados.increment();
+                     return;
+                 }
+                 LockSupport.parkNanos(1_000L << tentativas); // 2 µs, 4 µs, ... ~1 ms
+             } else if (cursor.compareAndSet(sequencia, sequencia + 1)) {
+                 break;
+             }
+         }
+         anel[(int) (sequencia & mascara)].copiarDe(rascunho, sequencia);
+     }
+ 
+     public long descartados() {
+         return descartados.sum();
+     }
+ 
+     // ✅ Espera (até 1 s) a escrita de tudo que já foi publicado; chamado também ao encerrar a JVM
+     @Override
+     public void descarregar() {
+         long alvo = cursor.get();
+         long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+         while (consumido < alvo && System.nanoTime() < limite) {
+             LockSupport.parkNanos(100_000);
+         }
+         saida.flush();
+     }
+ 
+     private void escrever() {
+         StringBuilder linha = new StringBuilder(256);
+         long descartadosInformados = 0;
+         while (true) {
+             if (!escreverProximo(linha)) {
+                 long total = descartados.sum();
+                 if (total > descartadosInformados) {
+                     saida.println("⚠️ Log: " + (total - descartadosInformados) + " evento(s) descartado(s) com o anel cheio");
+                     descartadosInformados = total;
+                 }
+                 LockSupport.parkNanos(50_000);
+             }
+         }
+     }
+ 
+     private boolean escreverProximo(StringBuilder linha) {
+         long proximo = consumido;
+         EventoLog evento = anel[(int) (proximo & mascara)];
+         if (!evento.publicadoEm(proximo)) {
+             return false;
+         }
+         linha.setLength(0);
+         evento.formatar(linha);
+         saida.println(linha);
+         consumido = proximo + 1;
+         return true;
+     }
+ }
+ 
+ // ✅ PONTO DE ACESSO AO LOG (troque o destino com Log.configurar, ex.: RegistroEventos.NENHUM)
+ // O destino padrão inicia, no primeiro uso de Log, uma thread daemon de escrita e um gancho de
+ // desligamento que esvazia o anel. Quem imprime direto no System.out deve chamar Log.descarregar()
+ // antes, senão essa saída pode aparecer intercalada fora de ordem com as linhas de log.
+ final class Log {
+     private static volatile RegistroEventos destino = new RegistroAssincrono(System.out, NivelLog.INFO, 8192);
+ 
+     private Log() {
+     }
+ 
+     public static void configurar(RegistroEventos novoDestino) {
+         destino = novoDestino;
+     }
+ 
+     public static void descarregar() {
+         destino.descarregar();
+     }
+ 
+     public static EventoLog debug(String modelo) {
+         return destino.evento(NivelLog.DEBUG, modelo);
+     }
+ 
+     public static EventoLog info(String modelo) {
+         return destino.evento(NivelLog.INFO, modelo);
+     }
+ 
+     public static EventoLog aviso(String modelo) {
+         return destino.evento(NivelLog.AVISO, modelo);
+     }
+ 
+     public static EventoLog erro(String modelo) {
+         return destino.evento(NivelLog.ERRO, modelo);
+     }
+ }
  
  // ✅ INTERFACE PARA PAGAMENTOS (ABSTRAÇÃO)
  interface Pagamento {
-     boolean processarPagamento(double valor);
+     boolean processarPagamentoEmCentavos(long valorCentavos); // valores monetários sempre em centavos (veja Dinheiro)
  }
  
  // ✅ IMPLEMENTAÇÃO DE PAGAMENTO POR CARTÃO
  class PagamentoCartao implements Pagamento {
-     public boolean processarPagamento(double valor) {
-         System.out.println("💳 Processando pagamento de R$ " + valor + " via cartão...");
-         return valor > 0;
+     public boolean processarPagamentoEmCentavos(long valorCentavos) {
+         Log.info("💳 Processando pagamento de {} via cartão...").comDinheiro(valorCentavos).publicar();
+         return valorCentavos > 0;
      }
  }
  
  // ✅ IMPLEMENTAÇÃO DE PAGAMENTO POR PIX
  class PagamentoPix implements Pagamento {
-     public boolean processarPagamento(double valor) {
-         System.out.println("⚡ Pagamento via Pix de R$ " + valor + " confirmado!");
-         return valor > 0;
+     public boolean processarPagamentoEmCentavos(long valorCentavos) {
+         Log.info("⚡ Pagamento via Pix de {} confirmado!").comDinheiro(valorCentavos).publicar();
+         return valorCentavos > 0;
+     }
+ }
+ 
+ // ✅ GATEWAY DE PAGAMENTO SIMULADO (latência, falhas e timeout injetáveis, para testes locais)
+ // A latência segue uma distribuição log-normal em torno da mediana: a maioria das chamadas
+ // fica perto dela e algumas formam a cauda longa, como em adquirentes reais.
+ class PagamentoSimulado implements Pagamento {
+     private final String nome;
+     private volatile long latenciaMedianaNanos;
+     private volatile double dispersao;
+     private volatile double taxaFalha;
+     private volatile long timeoutNanos;
+ 
+     // Latência fixa, sem timeout
+     public PagamentoSimulado(String nome, long latenciaMillis, double taxaFalha) {
+         this(nome, latenciaMillis, 0, taxaFalha, 0);
+     }
+ 
+     // ✅ dispersao é o desvio do log da latência (0 = fixa; 0.5 já gera uma cauda visível); timeoutMillis 0 desativa
+     public PagamentoSimulado(String nome, long latenciaMedianaMillis, double dispersao, double taxaFalha, long timeoutMillis) {
+         this.nome = nome;
+         this.latenciaMedianaNanos = TimeUnit.MILLISECONDS.toNanos(latenciaMedianaMillis);
+         this.dispersao = dispersao;
+         this.taxaFalha = taxaFalha;
+         this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+     }
+ 
+     public boolean processarPagamentoEmCentavos(long valorCentavos) {
+         ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+         long latencia = (long) (latenciaMedianaNanos * Math.exp(dispersao * aleatorio.nextGaussian()));
+         boolean estourou = timeoutNanos > 0 && latencia > timeoutNanos;
+         try {
+             TimeUnit.NANOSECONDS.sleep(estourou ? timeoutNanos : latencia);
+         } catch (InterruptedException e) {
+             Thread.currentThread().interrupt();
+             throw new IllegalStateException("❌ Gateway " + nome + " interrompido!", e);
+         }
+         if (estourou) {
+             throw new IllegalStateException("❌ Gateway " + nome + " não respondeu a tempo!");
+         }
+         if (aleatorio.nextDouble() < taxaFalha) {
+             throw new IllegalStateException("❌ Gateway " + nome + " indisponível!");
+         }
+         return valorCentavos > 0;
+     }
+ 
+     public void setLatenciaMillis(long latenciaMillis) {
+         this.latenciaMedianaNanos = TimeUnit.MILLISECONDS.toNanos(latenciaMillis);
+     }
+ 
+     public void setDispersao(double dispersao) {
+         this.dispersao = dispersao;
+     }
+ 
+     public void setTaxaFalha(double taxaFalha) {
+         this.taxaFalha = taxaFalha;
+     }
+ 
+     public void setTimeoutMillis(long timeoutMillis) {
+         this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+     }
+ 
+     @Override
+     public String toString() {
+         return nome;
+     }
+ }
+ 
+ // ✅ ROTEADOR DE PAGAMENTOS (escolhe o backend saudável mais rápido)
+ // Recusa de pagamento (false) é resposta válida; só exceções contam como falha do backend.
+ // O hedge repete a cobrança em outro backend quando o primeiro demora: use apenas com
+ // gateways que deduplicam a cobrança (ex.: chave de idempotência), senão o cliente paga duas vezes.
+ // O failover tem o mesmo risco: uma exceção (ex.: timeout) não prova que a cobrança não aconteceu,
+ // e Pagamento não recebe chave de idempotência. Com gateways que não deduplicam, use um único backend.
+ class RoteadorPagamento implements Pagamento {
+     private static final int JANELA = 128;
+     private static final int BITS_FRACAO = 3; // 8 baldes por potência de 2: erro de até 12,5% nos percentis
+ 
+     // Estatísticas móveis e disjuntor (circuit breaker) de um backend
+     // As latências da janela ficam num histograma de baldes logarítmicos: registrar é O(1) e os
+     // percentis só são recalculados (um passeio pelos baldes) quando alguém os lê depois de mudarem.
+     static class Backend {
+         private final Pagamento pagamento;
+         private final long[] latencias = new long[JANELA];
+         private final boolean[] erros = new boolean[JANELA];
+         private final int[] histograma = new int[64 << BITS_FRACAO];
+         private int amostras;
+         private int proxima;
+         private int totalErros;
+         private boolean percentisAtualizados;
+         private long p50Nanos;
+         private long p99Nanos;
+         private int falhasConsecutivas;
+         private boolean aberto;
+         private boolean testeEmAndamento;
+         private long reabrirEmNanos;
+ 
+         Backend(Pagamento pagamento) {
+             this.pagamento = pagamento;
+         }
+ 
+         synchronized void registrar(long nanos, boolean erro, int limiteFalhas, long tempoAbertoNanos) {
+             if (amostras == JANELA) {
+                 totalErros -= erros[proxima] ? 1 : 0;
+                 histograma[balde(latencias[proxima])]--;
+             }
+             latencias[proxima] = nanos;
+             erros[proxima] = erro;
+             totalErros += erro ? 1 : 0;
+             histograma[balde(nanos)]++;
+             proxima = (proxima + 1) % JANELA;
+             amostras = Math.min(amostras + 1, JANELA);
+             percentisAtualizados = false;
+ 
+             if (!erro) {
+                 falhasConsecutivas = 0;
+                 aberto = false;
+             } else if (testeEmAndamento || ++falhasConsecutivas >= limiteFalhas) {
+                 aberto = true;
+                 reabrirEmNanos = System.nanoTime() + tempoAbertoNanos;
+             }
+             testeEmAndamento = false;
+         }
+ 
+         // Disjuntor aberto recusa chamadas; após o tempo de espera, libera uma única chamada de teste
+         synchronized boolean permiteChamada() {
+             if (!aberto) {
+                 return true;
+             }
+             if (!testeEmAndamento && System.nanoTime() >= reabrirEmNanos) {
+                 testeEmAndamento = true;
+                 return true;
+             }
+             return false;
+         }
+ 
+         synchronized void liberarTeste() {
+             testeEmAndamento = false;
+         }
+ 
+         synchronized long getP50Nanos() {
+             atualizarPercentis();
+             return p50Nanos;
+         }
+ 
+         synchronized long getP99Nanos() {
+             atualizarPercentis();
+             return p99Nanos;
+         }
+ 
+         // ✅ Foto consistente para ordenar: o comparador não lê estado que muda durante a ordenação
+         synchronized Classificacao classificar() {
+             atualizarPercentis();
+             return new Classificacao(this, amostras > 0 && (double) totalErros / amostras >= 0.5, p50Nanos);
+         }
+ 
+         private void atualizarPercentis() {
+             if (percentisAtualizados || amostras == 0) {
+                 return;
+             }
+             int posicao50 = (amostras - 1) / 2 + 1;
+             int posicao99 = (int) Math.ceil(amostras * 0.99);
+             int acumulado = 0;
+             for (int i = 0; acumulado < posicao99; i++) {
+                 int anterior = acumulado;
+                 acumulado += histograma[i];
+                 if (anterior < posicao50 && acumulado >= posicao50) {
+                     p50Nanos = inicioDoBalde(i);
+                 }
+                 if (acumulado >= posicao99) {
+                     p99Nanos = inicioDoBalde(i);
+                 }
+             }
+             percentisAtualizados = true;
+         }
+ 
+         // Valores até 7 ns têm balde próprio; acima disso, expoente + 3 bits seguintes da mantissa
+         private static int balde(long nanos) {
+             if (nanos < (1 << BITS_FRACAO)) {
+                 return (int) Math.max(nanos, 0);
+             }
+             int expoente = 63 - Long.numberOfLeadingZeros(nanos);
+             int fracao = (int) (nanos >>> (expoente - BITS_FRACAO)) & ((1 << BITS_FRACAO) - 1);
+             return ((expoente - BITS_FRACAO + 1) << BITS_FRACAO) | fracao;
+         }
+ 
+         private static long inicioDoBalde(int balde) {
+             if (balde < (1 << BITS_FRACAO)) {
+                 return balde;
+             }
+             int expoente = (balde >>> BITS_FRACAO) + BITS_FRACAO - 1;
+             long mantissa = (1L << BITS_FRACAO) | (balde & ((1 << BITS_FRACAO) - 1));
+             return mantissa << (expoente - BITS_FRACAO);
+         }
+ 
+         synchronized double getTaxaErro() {
+             return amostras == 0 ? 0 : (double) totalErros / amostras;
+         }
+ 
+         synchronized boolean isAberto() {
+             return aberto;
+         }
+ 
+         @Override
+         public String toString() {
+             return String.format("%s [p50=%.2fms, p99=%.2fms, erros=%.1f%%%s]", pagamento, getP50Nanos() / 1e6,
+                     getP99Nanos() / 1e6, getTaxaErro() * 100, isAberto() ? ", disjuntor aberto" : "");
+         }
+     }
+
+     // Valores lidos de um backend num único instante, usados só para ordenar
+     static final class Classificacao {
+         final Backend backend;
+         final boolean instavel;
+         final long p50Nanos;
+
+         Classificacao(Backend backend, boolean instavel, long p50Nanos) {
+             this.backend = backend;
+             this.instavel = instavel;
+             this.p50Nanos = p50Nanos;
+         }
+     }
+ 
+     private final List<Backend> backends = new ArrayList<>();
+     private final int limiteFalhas;
+     private final long tempoAbertoNanos;
+     private final long atrasoHedgeNanos;
+     private final ExecutorService executor;
+ 
+     public RoteadorPagamento(List<Pagamento> pagamentos, int limiteFalhas, long tempoAbertoMillis) {
+         this(pagamentos, limiteFalhas, tempoAbertoMillis, 0);
+     }
+ 
+     // ✅ atrasoHedgeMillis > 0 ativa o hedge: após esse tempo sem resposta, tenta o próximo backend
+     public RoteadorPagamento(List<Pagamento> pagamentos, int limiteFalhas, long tempoAbertoMillis, long atrasoHedgeMillis) {
+         if (pagamentos.isEmpty() || limiteFalhas <= 0) {
+             throw new IllegalArgumentException("❌ Configuração inválida para o roteador de pagamentos!");
+         }
+         for (Pagamento pagamento : pagamentos) {
+             backends.add(new Backend(pagamento));
+         }
+         this.limiteFalhas = limiteFalhas;
+         this.tempoAbertoNanos = TimeUnit.MILLISECONDS.toNanos(tempoAbertoMillis);
+         this.atrasoHedgeNanos = TimeUnit.MILLISECONDS.toNanos(atrasoHedgeMillis);
+         this.executor = atrasoHedgeMillis > 0 ? Executors.newCachedThreadPool(tarefa -> {
+             Thread thread = new Thread(tarefa, "pagamento-hedge");
+             thread.setDaemon(true);
+             return thread;
+         }) : null;
+     }
+ 
+     public boolean processarPagamentoEmCentavos(long valorCentavos) {
+         List<Classificacao> classificacoes = new ArrayList<>(backends.size());
+         for (Backend backend : backends) {
+             classificacoes.add(backend.classificar());
+         }
+         // Mais rápidos primeiro; backends com muitos erros vão para o fim da fila
+         classificacoes.sort(Comparator.comparing((Classificacao c) -> c.instavel).thenComparingLong(c -> c.p50Nanos));
+         List<Backend> candidatos = new ArrayList<>(classificacoes.size());
+         for (Classificacao classificacao : classificacoes) {
+             candidatos.add(classificacao.backend);
+         }
+         RuntimeException ultimaFalha = null;
+         for (int i = 0; i < candidatos.size(); i++) {
+             Backend backend = candidatos.get(i);
+             if (!backend.permiteChamada()) {
+                 continue;
+             }
+             try {
+                 if (executor != null) {
+                     return chamarComHedge(backend, candidatos.subList(i + 1, candidatos.size()), valorCentavos);
+                 }
+                 return chamar(backend, valorCentavos);
+             } catch (RuntimeException e) {
+                 ultimaFalha = e; // tenta o próximo backend (failover)
+             }
+         }
+         throw new IllegalStateException("❌ Nenhum backend de pagamento disponível!", ultimaFalha);
+     }
+ 
+     private boolean chamar(Backend backend, long valorCentavos) {
+         long inicio = System.nanoTime();
+         try {
+             boolean resultado = backend.pagamento.processarPagamentoEmCentavos(valorCentavos);
+             backend.registrar(System.nanoTime() - inicio, false, limiteFalhas, tempoAbertoNanos);
+             return resultado;
+         } catch (RuntimeException e) {
+             // Chamada cancelada por perder o hedge não é falha do backend
+             if (Thread.currentThread().isInterrupted()) {
+                 backend.liberarTeste();
+             } else {
+                 backend.registrar(System.nanoTime() - inicio, true, limiteFalhas, tempoAbertoNanos);
+             }
+             throw e;
+         }
+     }
+ 
+     private boolean chamarComHedge(Backend principal, List<Backend> reservas, long valorCentavos) {
+         ExecutorCompletionService<Boolean> conclusoes = new ExecutorCompletionService<>(executor);
+         List<Future<Boolean>> chamadas = new ArrayList<>();
+         chamadas.add(conclusoes.submit(() -> chamar(principal, valorCentavos)));
+         RuntimeException ultimaFalha = null;
+         try {
+             Future<Boolean> concluida = conclusoes.poll(atrasoHedgeNanos, TimeUnit.NANOSECONDS);
+             if (concluida == null) {
+                 for (Backend reserva : reservas) {
+                     if (reserva.permiteChamada()) {
+                         chamadas.add(conclusoes.submit(() -> chamar(reserva, valorCentavos)));
+                         break;
+                     }
+                 }
+             }
+             for (int pendentes = chamadas.size(); pendentes > 0; pendentes--) {
+                 if (concluida == null) {
+                     concluida = conclusoes.take();
+                 }
+                 try {
+                     return concluida.get();
+                 } catch (ExecutionException e) {
+                     ultimaFalha = e.getCause() instanceof RuntimeException
+                             ? (RuntimeException) e.getCause()
+                             : new IllegalStateException(e.getCause());
+                     concluida = null;
+                 }
+             }
+             throw ultimaFalha;
+         } catch (InterruptedException e) {
+             Thread.currentThread().interrupt();
+             throw new IllegalStateException("❌ Pagamento interrompido!", e);
+         } finally {
+             for (Future<Boolean> chamada : chamadas) {
+                 chamada.cancel(true);
+             }
+         }
+     }
+ 
+     // ✅ Estado atual de cada backend (latências, taxa de erro e disjuntor)
+     public List<String> getEstatisticas() {
+         List<String> estatisticas = new ArrayList<>();
+         for (Backend backend : backends) {
+             estatisticas.add(backend.toString());
+         }
+         return estatisticas;
      }
  }
  
@@ -61,42 +883,1282 @@
  // ✅ IMPLEMENTAÇÃO DE NOTIFICAÇÃO POR E-MAIL
  class NotificacaoEmail implements Notificacao {
      public void enviar(String email, String mensagem) {
-         System.out.println("📧 Enviando e-mail para " + email + ": " + mensagem);
+         Log.info("📧 Enviando e-mail para {}: {}").com(email).com(mensagem).publicar();
      }
  }
  
  // ✅ IMPLEMENTAÇÃO DE NOTIFICAÇÃO POR SMS
  class NotificacaoSMS implements Notificacao {
      public void enviar(String telefone, String mensagem) {
-         System.out.println("📱 Enviando SMS para " + telefone + ": " + mensagem);
+         Log.info("📱 Enviando SMS para {}: {}").com(telefone).com(mensagem).publicar();
+     }
+ }
+ 
+ // ✅ DECORADOR ASSÍNCRONO DE NOTIFICAÇÃO (não bloqueia a thread do pedido)
+ // Mensagens para o mesmo destinatário dentro da janela são agrupadas em um único envio.
+ // A fila é limitada: quando enche, enviar() bloqueia (backpressure) em vez de acumular memória.
+ class NotificacaoAssincrona implements Notificacao {
+     // Mensagens pendentes de um destinatário; só é alterado dentro de compute() do mapa
+     private static class Agrupamento {
+         final String destinatario;
+         final long criadoEmNanos = System.nanoTime();
+         final List<String> mensagens = new ArrayList<>();
+ 
+         Agrupamento(String destinatario) {
+             this.destinatario = destinatario;
+         }
+     }
+ 
+     private final Notificacao destino;
+     private final long janelaNanos;
+     private final BlockingQueue<Agrupamento> fila;
+     private final ConcurrentHashMap<String, Agrupamento> pendentes = new ConcurrentHashMap<>();
+     private final List<Thread> trabalhadores = new ArrayList<>();
+     private final AtomicBoolean encerrado = new AtomicBoolean();
+     // Produtores entre a checagem de "encerrado" e o fim do put; os trabalhadores só saem quando chega a zero
+     private final AtomicInteger produtoresAtivos = new AtomicInteger();
+ 
+     private final LongAdder mensagensRecebidas = new LongAdder();
+     private final LongAdder enviosRealizados = new LongAdder();
+     private final LongAdder enviosFalhos = new LongAdder();
+     private final LongAdder latenciaTotalNanos = new LongAdder();
+     private final AtomicLong latenciaMaximaNanos = new AtomicLong();
+ 
+     public NotificacaoAssincrona(Notificacao destino, int capacidadeFila, long janelaMillis, int quantidadeTrabalhadores) {
+         if (capacidadeFila <= 0 || quantidadeTrabalhadores <= 0 || janelaMillis < 0) {
+             throw new IllegalArgumentException("❌ Configuração inválida para notificação assíncrona!");
+         }
+         this.destino = destino;
+         this.janelaNanos = TimeUnit.MILLISECONDS.toNanos(janelaMillis);
+         this.fila = new ArrayBlockingQueue<>(capacidadeFila);
+         for (int i = 0; i < quantidadeTrabalhadores; i++) {
+             Thread trabalhador = new Thread(this::despachar, "notificacao-" + i);
+             trabalhador.setDaemon(true);
+             trabalhador.start();
+             trabalhadores.add(trabalhador);
+         }
+     }
+ 
+     public void enviar(String destinatario, String mensagem) {
+         // Registra-se como produtor ANTES de ler "encerrado"; encerrar() faz o inverso (marca e depois
+         // os trabalhadores leem produtoresAtivos), então ou este envio é recusado ou ele é drenado.
+         produtoresAtivos.incrementAndGet();
+         try {
+             if (encerrado.get()) {
+                 throw new IllegalStateException("❌ Notificação assíncrona já encerrada!");
+             }
+             enfileirar(destinatario, mensagem);
+         } finally {
+             produtoresAtivos.decrementAndGet();
+         }
+     }
+ 
+     private void enfileirar(String destinatario, String mensagem) {
+         mensagensRecebidas.increment();
+         Agrupamento[] novo = new Agrupamento[1];
+         pendentes.compute(destinatario, (chave, atual) -> {
+             Agrupamento agrupamento = atual;
+             if (agrupamento == null) {
+                 agrupamento = new Agrupamento(chave);
+                 novo[0] = agrupamento;
+             }
+             agrupamento.mensagens.add(mensagem);
+             return agrupamento;
+         });
+         if (novo[0] != null) {
+             try {
+                 fila.put(novo[0]); // bloqueia quando a fila está cheia (backpressure)
+             } catch (InterruptedException e) {
+                 Thread.currentThread().interrupt();
+                 throw new IllegalStateException("❌ Envio de notificação interrompido!", e);
+             }
+         }
+     }
+ 
+     private void despachar() {
+         try {
+             while (!podeEncerrar()) {
+                 Agrupamento agrupamento = fila.poll(100, TimeUnit.MILLISECONDS);
+                 if (agrupamento == null) {
+                     continue;
+                 }
+                 long espera = agrupamento.criadoEmNanos + janelaNanos - System.nanoTime();
+                 if (espera > 0 && !encerrado.get()) {
+                     TimeUnit.NANOSECONDS.sleep(espera);
+                 }
+                 // Remove do mapa dentro de compute(): a partir daqui nenhuma mensagem entra neste agrupamento
+                 pendentes.computeIfPresent(agrupamento.destinatario, (chave, atual) -> atual == agrupamento ? null : atual);
+                 List<String> mensagens = agrupamento.mensagens;
+                 try {
+                     destino.enviar(agrupamento.destinatario, mensagens.size() == 1 ? mensagens.get(0) : String.join(" | ", mensagens));
+                     registrarLatencia(System.nanoTime() - agrupamento.criadoEmNanos);
+                 } catch (RuntimeException e) {
+                     // Uma falha no envio perde só este lote: o trabalhador continua drenando a fila
+                     enviosFalhos.increment();
+                     Log.erro("❌ Falha ao notificar {}: {}").com(agrupamento.destinatario).com(String.valueOf(e)).publicar();
+                 }
+             }
+         } catch (InterruptedException e) {
+             Thread.currentThread().interrupt();
+         }
+     }
+ 
+     // A ordem das leituras importa: encerrado → produtoresAtivos → fila (um produtor que passou
+     // da checagem só sai de produtoresAtivos depois do put, então o lote dele já está na fila)
+     private boolean podeEncerrar() {
+         return encerrado.get() && produtoresAtivos.get() == 0 && fila.isEmpty();
+     }
+ 
+     private void registrarLatencia(long nanos) {
+         enviosRealizados.increment();
+         latenciaTotalNanos.add(nanos);
+         latenciaMaximaNanos.accumulateAndGet(nanos, Math::max);
+     }
+ 
+     // ✅ Encerra após despachar tudo o que já estava na fila
+     public void encerrar() {
+         encerrado.set(true);
+         for (Thread trabalhador : trabalhadores) {
+             try {
+                 trabalhador.join();
+             } catch (InterruptedException e) {
+                 Thread.currentThread().interrupt();
+                 return;
+             }
+         }
+     }
+ 
+     public int getProfundidadeFila() {
+         return fila.size();
+     }
+ 
+     public long getMensagensRecebidas() {
+         return mensagensRecebidas.sum();
+     }
+ 
+     public long getEnviosRealizados() {
+         return enviosRealizados.sum();
+     }
+ 
+     public long getEnviosFalhos() {
+         return enviosFalhos.sum();
+     }
+ 
+     public double getLatenciaMediaMillis() {
+         long envios = enviosRealizados.sum();
+         return envios == 0 ? 0 : latenciaTotalNanos.sum() / (envios * 1_000_000.0);
+     }
+ 
+     public double getLatenciaMaximaMillis() {
+         return latenciaMaximaNanos.get() / 1_000_000.0;
+     }
+ }
+ 
+ // ✅ HISTOGRAMA DE LATÊNCIA (buckets log-lineares, sem locks)
+ // Cada potência de 2 é dividida em 32 faixas (erro relativo ≤ ~3%), cobrindo de 1 ns até horas
+ // em ~1900 contadores fixos; registrar é um cálculo de índice e um incremento atômico.
+ class HistogramaLatencia {
+     private static final int BITS_SUBFAIXA = 5;
+     private static final int SUBFAIXAS = 1 << BITS_SUBFAIXA;
+     private static final int TOTAL_FAIXAS = (64 - BITS_SUBFAIXA) * SUBFAIXAS;
+ 
+     private final AtomicLongArray contagens = new AtomicLongArray(TOTAL_FAIXAS);
+     private final LongAdder sucessos = new LongAdder();
+     private final LongAdder falhas = new LongAdder();
+     private final AtomicLong maximoNanos = new AtomicLong();
+ 
+     public void registrar(long nanos, boolean sucesso) {
+         contagens.incrementAndGet(indice(Math.max(nanos, 0)));
+         (sucesso ? sucessos : falhas).increment();
+         if (nanos > maximoNanos.get()) {
+             maximoNanos.accumulateAndGet(nanos, Math::max);
+         }
+     }
+ 
+     static int indice(long valor) {
+         if (valor < SUBFAIXAS) {
+             return (int) valor;
+         }
+         int expoente = 63 - Long.numberOfLeadingZeros(valor);
+         int deslocamento = expoente - BITS_SUBFAIXA;
+         return (deslocamento + 1) * SUBFAIXAS + (int) ((valor >>> deslocamento) - SUBFAIXAS);
+     }
+ 
+     // Valor representativo (meio da faixa) do índice
+     static long valorDe(int indice) {
+         if (indice < 2 * SUBFAIXAS) {
+             return indice;
+         }
+         int deslocamento = indice / SUBFAIXAS - 1;
+         long inicio = (long) (SUBFAIXAS + indice % SUBFAIXAS) << deslocamento;
+         return inicio + (1L << deslocamento) / 2;
+     }
+ 
+     public LatenciaInstantanea instantaneo(String nome) {
+         long[] copia = new long[TOTAL_FAIXAS];
+         long total = 0;
+         for (int i = 0; i < TOTAL_FAIXAS; i++) {
+             copia[i] = contagens.get(i);
+             total += copia[i];
+         }
+         return new LatenciaInstantanea(nome, sucessos.sum(), falhas.sum(), percentil(copia, total, 0.50),
+                 percentil(copia, total, 0.99), percentil(copia, total, 0.999), maximoNanos.get());
+     }
+ 
+     private static long percentil(long[] contagens, long total, double fracao) {
+         if (total == 0) {
+             return 0;
+         }
+         long alvo = (long) Math.ceil(total * fracao);
+         long acumulado = 0;
+         for (int i = 0; i < contagens.length; i++) {
+             acumulado += contagens[i];
+             if (acumulado >= alvo) {
+                 return valorDe(i);
+             }
+         }
+         return valorDe(contagens.length - 1);
+     }
+ }
+ 
+ // ✅ FOTO DAS MÉTRICAS DE UMA IMPLEMENTAÇÃO (imutável, pronta para exportação)
+ class LatenciaInstantanea {
+     private final String nome;
+     private final long sucessos;
+     private final long falhas;
+     private final long p50Nanos;
+     private final long p99Nanos;
+     private final long p999Nanos;
+     private final long maximoNanos;
+ 
+     public LatenciaInstantanea(String nome, long sucessos, long falhas, long p50Nanos, long p99Nanos, long p999Nanos, long maximoNanos) {
+         this.nome = nome;
+         this.sucessos = sucessos;
+         this.falhas = falhas;
+         this.p50Nanos = p50Nanos;
+         this.p99Nanos = p99Nanos;
+         this.p999Nanos = p999Nanos;
+         this.maximoNanos = maximoNanos;
+     }
+ 
+     public String getNome() {
+         return nome;
+     }
+ 
+     public long getSucessos() {
+         return sucessos;
+     }
+ 
+     public long getFalhas() {
+         return falhas;
+     }
+ 
+     public long getP50Nanos() {
+         return p50Nanos;
+     }
+ 
+     public long getP99Nanos() {
+         return p99Nanos;
+     }
+ 
+     public long getP999Nanos() {
+         return p999Nanos;
+     }
+ 
+     public long getMaximoNanos() {
+         return maximoNanos;
+     }
+ 
+     @Override
+     public String toString() {
+         return String.format("📈 %s: %d ok, %d falhas, p50=%.3fms, p99=%.3fms, p99.9=%.3fms, máx=%.3fms", nome, sucessos,
+                 falhas, p50Nanos / 1e6, p99Nanos / 1e6, p999Nanos / 1e6, maximoNanos / 1e6);
+     }
+ }
+ 
+ // ✅ REGISTRO DE MÉTRICAS (um histograma por classe concreta; consultado pelo exportador)
+ class RegistroMetricas {
+     private final ConcurrentHashMap<String, HistogramaLatencia> histogramas = new ConcurrentHashMap<>();
+ 
+     public HistogramaLatencia histograma(String nome) {
+         return histogramas.computeIfAbsent(nome, chave -> new HistogramaLatencia());
+     }
+ 
+     public List<LatenciaInstantanea> instantaneos() {
+         List<LatenciaInstantanea> fotos = new ArrayList<>();
+         histogramas.forEach((nome, histograma) -> fotos.add(histograma.instantaneo(nome)));
+         fotos.sort(Comparator.comparing(LatenciaInstantanea::getNome));
+         return fotos;
+     }
+ }
+ 
+ // ✅ DECORADOR DE PAGAMENTO COM MEDIÇÃO DE LATÊNCIA (recusa conta como falha, assim como exceções)
+ class PagamentoInstrumentado implements Pagamento {
+     private final Pagamento destino;
+     private final HistogramaLatencia histograma;
+ 
+     public PagamentoInstrumentado(Pagamento destino, RegistroMetricas metricas) {
+         this.destino = destino;
+         // Resolvido uma vez: o caminho quente não consulta mapa
+         this.histograma = metricas.histograma("Pagamento." + destino.getClass().getSimpleName());
+     }
+ 
+     public boolean processarPagamentoEmCentavos(long valorCentavos) {
+         long inicio = System.nanoTime();
+         boolean sucesso = false;
+         try {
+             sucesso = destino.processarPagamentoEmCentavos(valorCentavos);
+             return sucesso;
+         } finally {
+             histograma.registrar(System.nanoTime() - inicio, sucesso);
+         }
+     }
+ }
+ 
+ // ✅ DECORADOR DE NOTIFICAÇÃO COM MEDIÇÃO DE LATÊNCIA
+ class NotificacaoInstrumentada implements Notificacao {
+     private final Notificacao destino;
+     private final HistogramaLatencia histograma;
+ 
+     public NotificacaoInstrumentada(Notificacao destino, RegistroMetricas metricas) {
+         this.destino = destino;
+         this.histograma = metricas.histograma("Notificacao." + destino.getClass().getSimpleName());
+     }
+ 
+     public void enviar(String destinatario, String mensagem) {
+         long inicio = System.nanoTime();
+         boolean sucesso = false;
+         try {
+             destino.enviar(destinatario, mensagem);
+             sucesso = true;
+         } finally {
+             histograma.registrar(System.nanoTime() - inicio, sucesso);
+         }
+     }
+ }
+ 
+ // ✅ PEDIDO (dados de entrada do processamento em lote)
+ class Pedido {
+     private final String descricao;
+     private final long valorCentavos;
+     private final String destinatario;
+ 
+     private Pedido(String descricao, long valorCentavos, String destinatario) {
+         this.descricao = descricao;
+         this.valorCentavos = valorCentavos;
+         this.destinatario = destinatario;
+     }
+ 
+     // Fábrica com a unidade no nome: um valor em reais não compila por engano como centavos
+     public static Pedido emCentavos(String descricao, long valorCentavos, String destinatario) {
+         return new Pedido(descricao, valorCentavos, destinatario);
+     }
+ 
+     public String getDescricao() {
+         return descricao;
+     }
+ 
+     public long getValorCentavos() {
+         return valorCentavos;
+     }
+ 
+     public String getDestinatario() {
+         return destinatario;
+     }
+ }
+ 
+ // ✅ RESULTADO DE UM LOTE (contadores e vazão do lote)
+ class ResultadoLote {
+     private final int confirmados;
+     private final int recusados;
+     private final int notificados;
+     private final int falhas;
+     private final long duracaoNanos;
+ 
+     public ResultadoLote(int confirmados, int recusados, int notificados, long duracaoNanos) {
+         this(confirmados, recusados, notificados, 0, duracaoNanos);
+     }
+ 
+     // falhas: pedidos cujo pagamento ou registro lançou exceção (nem confirmados nem recusados)
+     public ResultadoLote(int confirmados, int recusados, int notificados, int falhas, long duracaoNanos) {
+         this.confirmados = confirmados;
+         this.recusados = recusados;
+         this.notificados = notificados;
+         this.falhas = falhas;
+         this.duracaoNanos = duracaoNanos;
+     }
+ 
+     public int getConfirmados() {
+         return confirmados;
+     }
+ 
+     public int getRecusados() {
+         return recusados;
+     }
+ 
+     public int getNotificados() {
+         return notificados;
+     }
+ 
+     public int getFalhas() {
+         return falhas;
+     }
+ 
+     public long getDuracaoNanos() {
+         return duracaoNanos;
+     }
+ 
+     public double getPedidosPorSegundo() {
+         int total = confirmados + recusados + falhas;
+         return duracaoNanos == 0 ? 0 : total * 1_000_000_000.0 / duracaoNanos;
+     }
+ 
+     @Override
+     public String toString() {
+         return "📦 Lote: " + confirmados + " confirmados, " + recusados + " recusados, " + falhas + " com falha, "
+                 + notificados + " notificados (" + String.format("%.0f", getPedidosPorSegundo()) + " pedidos/s)";
+     }
+ }
+ 
+ // ✅ REGISTRO DE PEDIDOS ACEITOS (log somente de inclusão, sem locks)
+ // Cada thread reserva uma posição com um único incremento atômico no cursor (nunca repete, ao contrário
+ // de um laço de CAS) e escreve no seu próprio slot, sem lock global.
+ // Limite conhecido: o cursor é um só, e a linha de cache dele passa de núcleo em núcleo a cada inclusão.
+ // Isso dá a ordem global de aceitação e o prefixo consistente de listar(), mas a vazão total NÃO cresce
+ // linearmente com os núcleos; fica limitada pela transferência dessa linha (meça com
+ // RegistroPedidosBenchmark.todasAsThreads). Reservar blocos de posições por thread tiraria a disputa,
+ // mas um bloco reservado e ainda não preenchido esconderia de listar() tudo o que vem depois dele.
+ class RegistroPedidos {
+     private static final int BITS_SEGMENTO = 12;
+     private static final int TAMANHO_SEGMENTO = 1 << BITS_SEGMENTO;
+     private static final int MAX_SEGMENTOS = 1 << 16;
+     private static final long CAPACIDADE = (long) MAX_SEGMENTOS << BITS_SEGMENTO;
+ 
+     private final AtomicReferenceArray<AtomicReferenceArray<String>> segmentos = new AtomicReferenceArray<>(MAX_SEGMENTOS);
+     private final AtomicLong proximaPosicao = new AtomicLong();
+ 
+     // null é recusado: um slot nulo é o que marca "reservado mas ainda não escrito" em listar()
+     public void adicionar(String pedido) {
+         if (pedido == null) {
+             throw new IllegalArgumentException("❌ Pedido nulo não pode ser registrado!");
+         }
+         // Posições recusadas ficam todas depois da capacidade, fora do que listar() percorre: não deixam buraco
+         long posicao = proximaPosicao.getAndIncrement();
+         if (posicao >= CAPACIDADE) {
+             throw new IllegalStateException("❌ Capacidade do registro de pedidos esgotada!");
+         }
+         segmento((int) (posicao >>> BITS_SEGMENTO)).set((int) (posicao & (TAMANHO_SEGMENTO - 1)), pedido);
+     }
+ 
+     private AtomicReferenceArray<String> segmento(int indice) {
+         AtomicReferenceArray<String> segmento = segmentos.get(indice);
+         if (segmento == null) {
+             segmentos.compareAndSet(indice, null, new AtomicReferenceArray<>(TAMANHO_SEGMENTO));
+             segmento = segmentos.get(indice);
+         }
+         return segmento;
+     }
+ 
+     /**
+      * Retorna os pedidos na ordem de aceitação. A visão para no primeiro slot
+      * reservado mas ainda não escrito, então é sempre um prefixo consistente do log.
+      */
+     public List<String> listar() {
+         long limite = Math.min(proximaPosicao.get(), CAPACIDADE);
+         List<String> visao = new ArrayList<>((int) Math.min(limite, Integer.MAX_VALUE - 8));
+         for (long posicao = 0; posicao < limite; posicao++) {
+             AtomicReferenceArray<String> segmento = segmentos.get((int) (posicao >>> BITS_SEGMENTO));
+             String pedido = segmento == null ? null : segmento.get((int) (posicao & (TAMANHO_SEGMENTO - 1)));
+             if (pedido == null) {
+                 break;
+             }
+             visao.add(pedido);
+         }
+         return visao;
+     }
+ }
+ 
+ // ✅ DIÁRIO DE PEDIDOS (write-ahead log em segmentos mapeados em memória)
+ // Registro: [tamanho int][crc32c int][corpo]. Tamanho 0 marca o fim dos dados do segmento.
+ // Corpo: [ACEITO byte][descrição UTF-8] quando o pedido é aceito, antes do pagamento, e
+ //        [DESFECHO byte][sequência do aceite long][desfecho byte] depois do pagamento.
+ // Um aceite sem desfecho na recuperação é um pedido que pode ter sido cobrado: não se perde.
+ // A durabilidade é feita em grupo: uma única chamada a force() cobre todos os registros
+ // escritos até ali, e as threads que esperavam por eles são liberadas juntas.
+ class DiarioPedidos implements AutoCloseable {
+     private static final int CABECALHO = 8;
+     private static final byte ACEITO = 1;
+     private static final byte DESFECHO = 2;
+     private static final int TAMANHO_DESFECHO = 1 + 8 + 1;
+     private static final String PREFIXO = "pedidos-";
+     private static final String SUFIXO = ".log";
+
+     public enum Desfecho {
+         CONFIRMADO, RECUSADO, FALHA
+     }
+
+     // ✅ Recebe os registros na ordem em que foram escritos (a sequência é a posição no diário, a partir de 1)
+     public interface Leitor {
+         void aceito(long sequencia, String pedido);
+
+         void desfecho(long sequenciaAceite, Desfecho desfecho);
+     }
+ 
+     private final Path diretorio;
+     private final int tamanhoSegmento;
+     private final Object travaDurabilidade = new Object();
+     private final CRC32C crc = new CRC32C(); // só usado sob o lock do diário (registrar e recuperar)
+ 
+     private FileChannel canal;
+     private MappedByteBuffer segmento;
+     private int numeroSegmento;
+     private long sequenciaEscrita;
+     private volatile long sequenciaDuravel;
+     private boolean recuperado;
+ 
+     public DiarioPedidos(Path diretorio, int tamanhoSegmento) {
+         if (tamanhoSegmento <= CABECALHO) {
+             throw new IllegalArgumentException("❌ Tamanho de segmento inválido!");
+         }
+         this.diretorio = diretorio;
+         this.tamanhoSegmento = tamanhoSegmento;
+         try {
+             Files.createDirectories(diretorio);
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Não foi possível criar o diretório do diário", e);
+         }
+     }
+ 
+     // Só os pedidos aceitos, na ordem de aceitação
+     public long recuperar(Consumer<String> consumidor) {
+         return recuperar(new Leitor() {
+             @Override
+             public void aceito(long sequencia, String pedido) {
+                 consumidor.accept(pedido);
+             }
+
+             @Override
+             public void desfecho(long sequenciaAceite, Desfecho desfecho) {
+             }
+         });
+     }
+
+     /**
+      * Relê todos os segmentos em ordem, entregando cada registro válido ao leitor,
+      * e posiciona a escrita logo após o último registro íntegro (um registro final
+      * corrompido por queda do processo é descartado). Se não for chamado, o primeiro
+      * registrar() faz a recuperação descartando os pedidos lidos. Chamar de novo força e
+      * fecha o segmento aberto e relê tudo, inclusive o que foi registrado nesse meio-tempo.
+      * Cada segmento é mapeado no tamanho real do arquivo; só o último, que continua
+      * recebendo registros, é mapeado para escrita.
+      */
+     public synchronized long recuperar(Leitor leitor) {
+         if (segmento != null) {
+             close();
+         }
+         long recuperados = 0;
+         List<Path> segmentos = listarSegmentos();
+         for (int i = 0; i < segmentos.size(); i++) {
+             MappedByteBuffer buffer;
+             if (i < segmentos.size() - 1) {
+                 buffer = mapearLeitura(segmentos.get(i));
+             } else {
+                 // O canal fica aberto já aqui para não vazar se o consumidor lançar exceção
+                 numeroSegmento = numeroDe(segmentos.get(i));
+                 canal = abrir(segmentos.get(i));
+                 buffer = mapearEscrita(canal);
+                 segmento = buffer;
+             }
+             while (buffer.remaining() >= CABECALHO) {
+                 int inicio = buffer.position();
+                 int tamanho = buffer.getInt();
+                 int soma = buffer.getInt();
+                 if (tamanho <= 0 || tamanho > buffer.remaining()) {
+                     buffer.position(inicio);
+                     break;
+                 }
+                 byte[] dados = new byte[tamanho];
+                 buffer.get(dados);
+                 crc.reset();
+                 crc.update(dados, 0, tamanho);
+                 if ((int) crc.getValue() != soma) {
+                     buffer.position(inicio);
+                     break;
+                 }
+                 recuperados++;
+                 if (dados[0] == ACEITO) {
+                     leitor.aceito(recuperados, new String(dados, 1, tamanho - 1, StandardCharsets.UTF_8));
+                 } else if (dados[0] == DESFECHO && tamanho == TAMANHO_DESFECHO && dados[9] >= 0
+                         && dados[9] < Desfecho.values().length) {
+                     leitor.desfecho(ByteBuffer.wrap(dados, 1, 8).getLong(), Desfecho.values()[dados[9]]);
+                 } else {
+                     throw new IllegalStateException("❌ Registro desconhecido no diário: tipo " + dados[0]);
+                 }
+             }
+             if (i == segmentos.size() - 1) {
+                 // Continua escrevendo no último segmento, sobre o que sobrou de um registro incompleto
+                 limparRestante();
+             }
+         }
+         sequenciaEscrita = recuperados;
+         sequenciaDuravel = recuperados;
+         recuperado = true;
+         return recuperados;
+     }
+ 
+     // ✅ Anexa o aceite do pedido ao diário e devolve a sequência para aguardar a durabilidade
+     public long registrar(String pedido) {
+         byte[] descricao = pedido.getBytes(StandardCharsets.UTF_8);
+         byte[] dados = new byte[1 + descricao.length];
+         dados[0] = ACEITO;
+         System.arraycopy(descricao, 0, dados, 1, descricao.length);
+         return anexar(dados);
+     }
+
+     // ✅ Anexa o desfecho do pagamento de um aceite. Não espera o disco: se ele se perder numa queda,
+     // o aceite volta sem desfecho e o pedido é conferido, nunca esquecido.
+     public long registrarDesfecho(long sequenciaAceite, Desfecho desfecho) {
+         byte[] dados = new byte[TAMANHO_DESFECHO];
+         ByteBuffer.wrap(dados).put(DESFECHO).putLong(sequenciaAceite).put((byte) desfecho.ordinal());
+         return anexar(dados);
+     }
+
+     private synchronized long anexar(byte[] dados) {
+         if (!recuperado) {
+             recuperar(existente -> { });
+         }
+         if (dados.length + CABECALHO > tamanhoSegmento) {
+             throw new IllegalArgumentException("❌ Pedido maior que o segmento do diário!");
+         }
+         if (segmento == null || segmento.remaining() < dados.length + CABECALHO) {
+             rolarSegmento();
+         }
+         crc.reset();
+         crc.update(dados, 0, dados.length);
+         int inicio = segmento.position();
+         // O tamanho é escrito por último para que um registro parcial nunca pareça válido
+         segmento.position(inicio + 4);
+         segmento.putInt((int) crc.getValue());
+         segmento.put(dados);
+         segmento.putInt(inicio, dados.length);
+         return ++sequenciaEscrita;
+     }
+ 
+     // ✅ Bloqueia até que a sequência esteja em disco; um único force() atende o grupo inteiro
+     public void aguardarDurabilidade(long sequencia) {
+         if (sequenciaDuravel >= sequencia) {
+             return;
+         }
+         synchronized (travaDurabilidade) {
+             if (sequenciaDuravel >= sequencia) {
+                 return;
+             }
+             MappedByteBuffer atual;
+             long alvo;
+             synchronized (this) {
+                 atual = segmento;
+                 alvo = sequenciaEscrita;
+             }
+             // close() já forçou tudo o que foi escrito: sobra só sequência que este diário não entregou
+             if (atual == null) {
+                 throw new IllegalStateException("❌ Diário de pedidos fechado!");
+             }
+             atual.force();
+             sequenciaDuravel = alvo;
+         }
+     }
+ 
+     public long registrarDuravel(String pedido) {
+         long sequencia = registrar(pedido);
+         aguardarDurabilidade(sequencia);
+         return sequencia;
+     }
+ 
+     @Override
+     public synchronized void close() {
+         if (segmento != null) {
+             segmento.force();
+             sequenciaDuravel = sequenciaEscrita;
+             fecharCanal();
+             segmento = null;
+         }
+     }
+ 
+     private void rolarSegmento() {
+         if (segmento != null) {
+             // Segmentos antigos ficam duráveis antes da troca, então aguardarDurabilidade só força o atual
+             segmento.force();
+             fecharCanal();
+         }
+         numeroSegmento++;
+         Path arquivo = diretorio.resolve(String.format("%s%08d%s", PREFIXO, numeroSegmento, SUFIXO));
+         canal = abrir(arquivo);
+         try {
+             segmento = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanhoSegmento);
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao mapear segmento do diário", e);
+         }
+     }
+ 
+     private void limparRestante() {
+         // Zera o que restou de um registro incompleto para não ser confundido com dados novos
+         for (int i = segmento.position(); i < segmento.limit(); i++) {
+             if (segmento.get(i) != 0) {
+                 for (int j = i; j < segmento.limit(); j++) {
+                     segmento.put(j, (byte) 0);
+                 }
+                 return;
+             }
+         }
+     }
+ 
+     private List<Path> listarSegmentos() {
+         try (Stream<Path> arquivos = Files.list(diretorio)) {
+             return arquivos.filter(p -> p.getFileName().toString().startsWith(PREFIXO))
+                     .filter(p -> p.getFileName().toString().endsWith(SUFIXO))
+                     .sorted()
+                     .collect(Collectors.toList());
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao listar segmentos do diário", e);
+         }
+     }
+ 
+     // Segmentos fechados são só lidos, no tamanho que têm (podem vir de outra configuração)
+     private static MappedByteBuffer mapearLeitura(Path arquivo) {
+         try (FileChannel leitura = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+             return leitura.map(FileChannel.MapMode.READ_ONLY, 0, leitura.size());
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao mapear segmento do diário", e);
+         }
+     }
+
+     // Último segmento: tamanho real do arquivo; só um arquivo vazio (queda logo após criá-lo) ganha o tamanho configurado
+     private MappedByteBuffer mapearEscrita(FileChannel escrita) {
+         try {
+             long tamanho = escrita.size();
+             return escrita.map(FileChannel.MapMode.READ_WRITE, 0, tamanho == 0 ? tamanhoSegmento : tamanho);
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao mapear segmento do diário", e);
+         }
+     }
+ 
+     private FileChannel abrir(Path arquivo) {
+         try {
+             return FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao abrir segmento do diário", e);
+         }
+     }
+ 
+     private void fecharCanal() {
+         try {
+             canal.close();
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao fechar segmento do diário", e);
+         }
+     }
+ 
+     private static int numeroDe(Path arquivo) {
+         String nome = arquivo.getFileName().toString();
+         return Integer.parseInt(nome.substring(PREFIXO.length(), nome.length() - SUFIXO.length()));
      }
  }
  
  // ✅ CLASSE DE PROCESSAMENTO DE PEDIDOS QUE DEPENDE DE ABSTRAÇÕES
  class ProcessadorPedido {
+     // Pedido com a sequência do seu aceite no diário (0 sem diário), como circula entre os estágios
+     private static final class PedidoAceito {
+         final Pedido pedido;
+         final long sequencia;
+
+         PedidoAceito(Pedido pedido, long sequencia) {
+             this.pedido = pedido;
+             this.sequencia = sequencia;
+         }
+     }
+
+     // Marcador de fim de lote que atravessa as filas do pipeline
+     private static final PedidoAceito FIM_LOTE = new PedidoAceito(Pedido.emCentavos("", 0, ""), 0);
+     private static final int CAPACIDADE_PADRAO_FILA = 1024;
+ 
      private Pagamento metodoPagamento;
      private Notificacao metodoNotificacao;
-     private List<String> pedidos = new ArrayList<>();
+     private final RegistroPedidos pedidos = new RegistroPedidos();
+     private final int capacidadeFila;
+     private final DiarioPedidos diario;
+     private final List<String> pedidosSemDesfecho;
  
      // ✅ Dependência injetada via construtor (DIP aplicado corretamente)
      public ProcessadorPedido(Pagamento metodoPagamento, Notificacao metodoNotificacao) {
+         this(metodoPagamento, metodoNotificacao, CAPACIDADE_PADRAO_FILA);
+     }
+ 
+     // ✅ A capacidade limita as filas entre os estágios do processamento em lote
+     public ProcessadorPedido(Pagamento metodoPagamento, Notificacao metodoNotificacao, int capacidadeFila) {
+         this(metodoPagamento, metodoNotificacao, capacidadeFila, null);
+     }
+ 
+     // ✅ Com diário: os pedidos aceitos sobrevivem a reinícios e são recuperados na construção
+     public ProcessadorPedido(Pagamento metodoPagamento, Notificacao metodoNotificacao, DiarioPedidos diario) {
+         this(metodoPagamento, metodoNotificacao, CAPACIDADE_PADRAO_FILA, diario);
+     }
+ 
+     public ProcessadorPedido(Pagamento metodoPagamento, Notificacao metodoNotificacao, int capacidadeFila, DiarioPedidos diario) {
+         if (capacidadeFila <= 0) {
+             throw new IllegalArgumentException("❌ Capacidade da fila deve ser positiva!");
+         }
          this.metodoPagamento = metodoPagamento;
          this.metodoNotificacao = metodoNotificacao;
+         this.capacidadeFila = capacidadeFila;
+         this.diario = diario;
+         this.pedidosSemDesfecho = diario == null ? List.of() : recuperar(diario);
      }
+
+     // Aceites sem desfecho podem ter sido cobrados antes da queda: ficam listados para conferência
+     private List<String> recuperar(DiarioPedidos diario) {
+         Map<Long, String> semDesfecho = new LinkedHashMap<>();
+         diario.recuperar(new DiarioPedidos.Leitor() {
+             @Override
+             public void aceito(long sequencia, String pedido) {
+                 pedidos.adicionar(pedido);
+                 semDesfecho.put(sequencia, pedido);
+             }
+
+             @Override
+             public void desfecho(long sequenciaAceite, DiarioPedidos.Desfecho desfecho) {
+                 semDesfecho.remove(sequenciaAceite);
+             }
+         });
+         for (String pedido : semDesfecho.values()) {
+             Log.aviso("⚠️ Pedido sem desfecho no diário, conferir a cobrança: {}").com(pedido).publicar();
+         }
+         return List.copyOf(semDesfecho.values());
+     }
+
+     // ✅ O pedido é aceito (e fica durável no diário) antes da cobrança; o desfecho é registrado depois
+     public boolean processarPedidoEmCentavos(String pedido, long valorCentavos, String destinatario) {
+         long aceite = diario != null ? diario.registrarDuravel(pedido) : 0;
+         pedidos.adicionar(pedido);
  
-     public void processarPedido(String pedido, double valor, String destinatario) {
-         pedidos.add(pedido);
- 
-         boolean sucesso = metodoPagamento.processarPagamento(valor);
+         boolean sucesso;
+         try {
+             sucesso = metodoPagamento.processarPagamentoEmCentavos(valorCentavos);
+         } catch (RuntimeException e) {
+             registrarDesfecho(pedido, aceite, DiarioPedidos.Desfecho.FALHA);
+             throw e;
+         }
+         registrarDesfecho(pedido, aceite, sucesso ? DiarioPedidos.Desfecho.CONFIRMADO : DiarioPedidos.Desfecho.RECUSADO);
          if (sucesso) {
-             System.out.println("✅ Pedido confirmado: " + pedido);
+             Log.info("✅ Pedido confirmado: {}").com(pedido).publicar();
              metodoNotificacao.enviar(destinatario, "Seu pedido foi confirmado!");
          } else {
-             System.out.println("❌ Falha no pagamento do pedido: " + pedido);
+             Log.aviso("❌ Falha no pagamento do pedido: {}").com(pedido).publicar();
+         }
+         return sucesso;
+     }
+ 
+     // Depois da cobrança uma falha do diário não pode virar erro: quem chamou tentaria de novo e cobraria duas vezes
+     private void registrarDesfecho(String pedido, long aceite, DiarioPedidos.Desfecho desfecho) {
+         if (diario == null) {
+             return;
+         }
+         try {
+             diario.registrarDesfecho(aceite, desfecho);
+         } catch (RuntimeException e) {
+             Log.erro("❌ Erro ao registrar o desfecho do pedido {}: {}").com(pedido).com(String.valueOf(e)).publicar();
+         }
+     }
+
+     // ✅ Visão ordenada dos pedidos aceitos, segura para leitura concorrente
+     public List<String> getPedidos() {
+         return pedidos.listar();
+     }
+
+     // Pedidos que o diário trouxe aceitos mas sem desfecho (o processo caiu entre o aceite e o registro do pagamento)
+     public List<String> getPedidosSemDesfecho() {
+         return pedidosSemDesfecho;
+     }
+ 
+     /**
+      * Processa um lote em quatro estágios (aceite → pagamento → confirmação → notificação),
+      * cada um em sua própria thread e ligados por filas limitadas.
+      * Como no pedido avulso, o aceite vai para o diário antes da cobrança e o desfecho depois;
+      * o aceite grava blocos de até capacidadeFila pedidos e espera um único force() por bloco.
+      * Um notificador lento só bloqueia o pagamento quando a fila entre eles enche.
+      * Exceção num pedido é registrada e contada, e o lote segue. Se um estágio morrer mesmo assim
+      * (ex.: um Error), os outros são interrompidos e a falha é relançada para quem chamou.
+      */
+     public ResultadoLote processarPedidos(Collection<Pedido> lote) {
+         BlockingQueue<PedidoAceito> filaPagamento = new ArrayBlockingQueue<>(capacidadeFila);
+         BlockingQueue<PedidoAceito> filaConfirmacao = new ArrayBlockingQueue<>(capacidadeFila);
+         BlockingQueue<Pedido> filaNotificacao = new ArrayBlockingQueue<>(capacidadeFila);
+         // [confirmados, recusados, notificados, falhas no pagamento, falhas no registro]: cada posição tem um único escritor
+         int[] contadores = new int[5];
+         AtomicReference<Throwable> falhaEstagio = new AtomicReference<>();
+         Thread[] estagios = new Thread[4];
+
+         estagios[0] = new Thread(() -> executarEstagio(estagios, falhaEstagio, () -> {
+             PedidoAceito[] bloco = new PedidoAceito[capacidadeFila];
+             int tamanho = 0;
+             for (Pedido pedido : lote) {
+                 long sequencia;
+                 try {
+                     sequencia = diario != null ? diario.registrar(pedido.getDescricao()) : 0;
+                 } catch (RuntimeException e) {
+                     contadores[4]++;
+                     Log.erro("❌ Erro ao registrar o pedido {}: {}").com(pedido.getDescricao()).com(String.valueOf(e)).publicar();
+                     continue;
+                 }
+                 bloco[tamanho++] = new PedidoAceito(pedido, sequencia);
+                 if (tamanho == bloco.length) {
+                     liberarBloco(bloco, tamanho, filaPagamento, contadores);
+                     tamanho = 0;
+                 }
+             }
+             liberarBloco(bloco, tamanho, filaPagamento, contadores);
+             filaPagamento.put(FIM_LOTE);
+         }), "pedido-aceite");
+
+         estagios[1] = new Thread(() -> executarEstagio(estagios, falhaEstagio, () -> {
+             for (PedidoAceito aceito = filaPagamento.take(); aceito != FIM_LOTE; aceito = filaPagamento.take()) {
+                 Pedido pedido = aceito.pedido;
+                 boolean pago;
+                 try {
+                     pago = metodoPagamento.processarPagamentoEmCentavos(pedido.getValorCentavos());
+                 } catch (RuntimeException e) {
+                     contadores[3]++;
+                     Log.erro("❌ Erro no pagamento do pedido {}: {}").com(pedido.getDescricao()).com(String.valueOf(e)).publicar();
+                     registrarDesfecho(pedido.getDescricao(), aceito.sequencia, DiarioPedidos.Desfecho.FALHA);
+                     continue;
+                 }
+                 if (pago) {
+                     filaConfirmacao.put(aceito);
+                 } else {
+                     contadores[1]++;
+                     Log.aviso("❌ Falha no pagamento do pedido: {}").com(pedido.getDescricao()).publicar();
+                     registrarDesfecho(pedido.getDescricao(), aceito.sequencia, DiarioPedidos.Desfecho.RECUSADO);
+                 }
+             }
+             filaConfirmacao.put(FIM_LOTE);
+         }), "pedido-pagamento");
+
+         estagios[2] = new Thread(() -> executarEstagio(estagios, falhaEstagio, () -> {
+             for (PedidoAceito aceito = filaConfirmacao.take(); aceito != FIM_LOTE; aceito = filaConfirmacao.take()) {
+                 Pedido pedido = aceito.pedido;
+                 // Já cobrado: uma falha ao registrar o desfecho é só registrada, o pedido segue confirmado
+                 registrarDesfecho(pedido.getDescricao(), aceito.sequencia, DiarioPedidos.Desfecho.CONFIRMADO);
+                 contadores[0]++;
+                 Log.info("✅ Pedido confirmado: {}").com(pedido.getDescricao()).publicar();
+                 filaNotificacao.put(pedido);
+             }
+             filaNotificacao.put(FIM_LOTE.pedido);
+         }), "pedido-confirmacao");
+
+         estagios[3] = new Thread(() -> executarEstagio(estagios, falhaEstagio, () -> {
+             for (Pedido pedido = filaNotificacao.take(); pedido != FIM_LOTE.pedido; pedido = filaNotificacao.take()) {
+                 try {
+                     metodoNotificacao.enviar(pedido.getDestinatario(), "Seu pedido foi confirmado!");
+                     contadores[2]++;
+                 } catch (RuntimeException e) {
+                     // O pedido continua confirmado; só a notificação se perdeu
+                     Log.erro("❌ Erro ao notificar o pedido {}: {}").com(pedido.getDescricao()).com(String.valueOf(e)).publicar();
+                 }
+             }
+         }), "pedido-notificacao");
+ 
+         long inicio = System.nanoTime();
+         for (Thread estagio : estagios) {
+             estagio.start();
+         }
+         try {
+             // join() garante a visibilidade dos contadores escritos por cada estágio
+             for (Thread estagio : estagios) {
+                 estagio.join();
+             }
+         } catch (InterruptedException e) {
+             for (Thread estagio : estagios) {
+                 estagio.interrupt();
+             }
+             Thread.currentThread().interrupt();
+             throw new IllegalStateException("❌ Processamento do lote interrompido!", e);
+         }
+         Throwable falha = falhaEstagio.get();
+         if (falha != null) {
+             throw new IllegalStateException("❌ Estágio do lote falhou!", falha);
+         }
+         return new ResultadoLote(contadores[0], contadores[1], contadores[2], contadores[3] + contadores[4],
+                 System.nanoTime() - inicio);
+     }
+ 
+     // Um único force() torna o bloco inteiro durável; só então os pedidos seguem para a cobrança
+     // Se o force() falhar, nada do bloco é cobrado e cada aceite recebe o desfecho FALHA
+     private void liberarBloco(PedidoAceito[] bloco, int tamanho, BlockingQueue<PedidoAceito> filaPagamento, int[] contadores)
+             throws InterruptedException {
+         if (tamanho == 0) {
+             return;
+         }
+         boolean duravel = true;
+         if (diario != null) {
+             try {
+                 diario.aguardarDurabilidade(bloco[tamanho - 1].sequencia);
+             } catch (RuntimeException e) {
+                 duravel = false;
+                 contadores[4] += tamanho;
+                 Log.erro("❌ Erro ao tornar duráveis {} pedidos: {}").com(tamanho).com(String.valueOf(e)).publicar();
+             }
+         }
+         for (int i = 0; i < tamanho; i++) {
+             if (duravel) {
+                 // Como no pedido avulso, todo pedido aceito entra no registro, seja qual for o pagamento
+                 pedidos.adicionar(bloco[i].pedido.getDescricao());
+                 filaPagamento.put(bloco[i]);
+             } else {
+                 registrarDesfecho(bloco[i].pedido.getDescricao(), bloco[i].sequencia, DiarioPedidos.Desfecho.FALHA);
+             }
+             bloco[i] = null;
+         }
+     }
+
+     private interface CorpoEstagio {
+         void executar() throws InterruptedException;
+     }
+ 
+     // Um estágio que morre interrompe os demais: ninguém fica preso num put() ou take() de fila sem par
+     private static void executarEstagio(Thread[] estagios, AtomicReference<Throwable> falha, CorpoEstagio corpo) {
+         try {
+             corpo.executar();
+         } catch (InterruptedException e) {
+             Thread.currentThread().interrupt();
+         } catch (Throwable e) {
+             falha.compareAndSet(null, e);
+             for (Thread estagio : estagios) {
+                 if (estagio != Thread.currentThread()) {
+                     estagio.interrupt();
+                 }
+             }
+         }
+     }
+ }
+ 
+ // ✅ CACHE DE IDEMPOTÊNCIA (limitado, concorrente, com TTL e despejo estilo LRU)
+ // O despejo usa "segunda chance" (CLOCK): entradas acessadas desde a última volta
+ // voltam para o fim da fila em vez de saírem, aproximando LRU com custo O(1).
+ // Entradas com cálculo em andamento nunca são despejadas (senão uma retentativa simultânea
+ // cobraria de novo): o tamanho pode passar da capacidade em no máximo o número de cálculos
+ // em andamento, e o excesso sai assim que eles terminam.
+ class CacheIdempotencia {
+     private static class Entrada {
+         final String id;
+         final long criadaEmNanos = System.nanoTime();
+         final CompletableFuture<Boolean> resultado = new CompletableFuture<>();
+         volatile boolean referenciada;
+ 
+         Entrada(String id) {
+             this.id = id;
+         }
+     }
+ 
+     private final int capacidadeMaxima;
+     private final long ttlNanos;
+     private final ConcurrentHashMap<String, Entrada> entradas = new ConcurrentHashMap<>();
+     private final ConcurrentLinkedQueue<Entrada> ordem = new ConcurrentLinkedQueue<>();
+     private final AtomicInteger tamanhoOrdem = new AtomicInteger();
+ 
+     public CacheIdempotencia(int capacidadeMaxima, long ttlMillis) {
+         if (capacidadeMaxima <= 0 || ttlMillis <= 0) {
+             throw new IllegalArgumentException("❌ Capacidade e TTL devem ser positivos!");
+         }
+         this.capacidadeMaxima = capacidadeMaxima;
+         this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+     }
+ 
+     /**
+      * Retorna o resultado já registrado para o ID ou executa o cálculo uma única vez.
+      * Chamadas simultâneas com o mesmo ID aguardam o resultado da primeira.
+      * Se o cálculo lançar exceção (ou Error), o ID é liberado para uma nova tentativa
+      * e quem estava aguardando também tenta de novo.
+      */
+     public boolean obterOuCalcular(String id, BooleanSupplier calculo) {
+         while (true) {
+             Entrada existente = entradas.get(id);
+             if (existente != null) {
+                 if (expirada(existente)) {
+                     entradas.remove(id, existente);
+                     continue;
+                 }
+                 existente.referenciada = true;
+                 try {
+                     return existente.resultado.join();
+                 } catch (RuntimeException e) {
+                     continue; // a primeira tentativa falhou; esta chamada tenta de novo
+                 }
+             }
+ 
+             Entrada nova = new Entrada(id);
+             if (entradas.putIfAbsent(id, nova) != null) {
+                 continue;
+             }
+             ordem.add(nova);
+             tamanhoOrdem.incrementAndGet();
+             despejarExcedentes();
+             boolean resultado;
+             try {
+                 resultado = calculo.getAsBoolean();
+             } catch (Throwable e) {
+                 // Qualquer falha precisa completar o futuro: senão quem espera em join() fica preso para sempre
+                 entradas.remove(id, nova);
+                 nova.resultado.completeExceptionally(e);
+                 throw e;
+             }
+             nova.resultado.complete(resultado);
+             despejarExcedentes(); // entradas que estavam em andamento agora podem sair
+             return resultado;
+         }
+     }
+ 
+     public int tamanho() {
+         return entradas.size();
+     }
+ 
+     private boolean expirada(Entrada entrada) {
+         return entrada.resultado.isDone() && System.nanoTime() - entrada.criadaEmNanos > ttlNanos;
+     }
+ 
+     private void despejarExcedentes() {
+         // Cada entrada recebe no máximo uma segunda chance por volta, então o laço termina
+         int tentativas = 2 * tamanhoOrdem.get();
+         while (tamanhoOrdem.get() > capacidadeMaxima && tentativas-- > 0) {
+             Entrada candidata = ordem.poll();
+             if (candidata == null) {
+                 return;
+             }
+             tamanhoOrdem.decrementAndGet();
+             if (entradas.get(candidata.id) != candidata) {
+                 continue; // já removida por expiração ou falha
+             }
+             boolean emAndamento = !candidata.resultado.isDone();
+             if ((candidata.referenciada || emAndamento) && !expirada(candidata)) {
+                 candidata.referenciada = false;
+                 ordem.add(candidata);
+                 tamanhoOrdem.incrementAndGet();
+             } else {
+                 entradas.remove(candidata.id, candidata);
+             }
          }
      }
  }
  
+ // ✅ PROCESSADOR IDEMPOTENTE (retentativas do mesmo pedido não cobram de novo)
+ class ProcessadorPedidoIdempotente {
+     private final ProcessadorPedido processador;
+     private final CacheIdempotencia cache;
+ 
+     public ProcessadorPedidoIdempotente(ProcessadorPedido processador, CacheIdempotencia cache) {
+         this.processador = processador;
+         this.cache = cache;
+     }
+ 
+     public boolean processarPedidoEmCentavos(String idPedido, String pedido, long valorCentavos, String destinatario) {
+         return cache.obterOuCalcular(idPedido, () -> processador.processarPedidoEmCentavos(pedido, valorCentavos, destinatario));
+     }
+ }
+ 
+ // ✅ RELATÓRIO DE UMA EXECUÇÃO DE CARGA
+ class RelatorioCarga {
+     private final long enviados;
+     private final long duracaoNanos;
+     private final LatenciaInstantanea servico;
+     private final LatenciaInstantanea resposta;
+ 
+     public RelatorioCarga(long enviados, long duracaoNanos, LatenciaInstantanea servico, LatenciaInstantanea resposta) {
+         this.enviados = enviados;
+         this.duracaoNanos = duracaoNanos;
+         this.servico = servico;
+         this.resposta = resposta;
+     }
+ 
+     public double getVazaoAlcancada() {
+         return (resposta.getSucessos() + resposta.getFalhas()) * 1_000_000_000.0 / duracaoNanos;
+     }
+ 
+     // Medido a partir do início real da chamada (sofre de omissão coordenada)
+     public LatenciaInstantanea getServico() {
+         return servico;
+     }
+ 
+     // Medido a partir do instante planejado: inclui o tempo de espera por trabalhador livre
+     public LatenciaInstantanea getResposta() {
+         return resposta;
+     }
+ 
+     @Override
+     public String toString() {
+         return String.format("🚦 %d pedidos enviados, %.0f pedidos/s alcançados%n%s%n%s", enviados, getVazaoAlcancada(), servico, resposta);
+     }
+ }
+ 
+ // ✅ GERADOR DE CARGA EM MALHA ABERTA (dispara na taxa alvo, sem esperar as respostas)
+ // Cada pedido tem um instante planejado; se o sistema atrasa, os pedidos seguintes não são adiados.
+ // Medir a partir do instante planejado corrige a omissão coordenada: filas e pausas aparecem na cauda.
+ class GeradorCarga {
+     private final ProcessadorPedido processador;
+     private final int trabalhadores;
+ 
+     public GeradorCarga(ProcessadorPedido processador, int trabalhadores) {
+         if (trabalhadores <= 0) {
+             throw new IllegalArgumentException("❌ Quantidade de trabalhadores deve ser positiva!");
+         }
+         this.processador = processador;
+         this.trabalhadores = trabalhadores;
+     }
+ 
+     public RelatorioCarga executarEmCentavos(double pedidosPorSegundo, long duracaoMillis, long valorCentavos) {
+         if (pedidosPorSegundo <= 0 || duracaoMillis <= 0) {
+             throw new IllegalArgumentException("❌ Taxa e duração devem ser positivas!");
+         }
+         HistogramaLatencia servico = new HistogramaLatencia();
+         HistogramaLatencia resposta = new HistogramaLatencia();
+         ExecutorService executor = Executors.newFixedThreadPool(trabalhadores);
+         long intervaloNanos = (long) (1_000_000_000.0 / pedidosPorSegundo);
+         long total = (long) (pedidosPorSegundo * duracaoMillis / 1000.0);
+         long inicio = System.nanoTime();
+         try {
+             for (long i = 0; i < total; i++) {
+                 long planejado = inicio + i * intervaloNanos;
+                 long espera = planejado - System.nanoTime();
+                 if (espera > 0) {
+                     LockSupport.parkNanos(espera);
+                 }
+                 String pedido = "carga-" + i;
+                 executor.execute(() -> {
+                     long comeco = System.nanoTime();
+                     boolean sucesso;
+                     try {
+                         sucesso = processador.processarPedidoEmCentavos(pedido, valorCentavos, "carga@teste");
+                     } catch (RuntimeException e) {
+                         sucesso = false;
+                     }
+                     long fim = System.nanoTime();
+                     servico.registrar(fim - comeco, sucesso);
+                     resposta.registrar(fim - planejado, sucesso);
+                 });
+             }
+         } finally {
+             executor.shutdown();
+         }
+         try {
+             executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+         } catch (InterruptedException e) {
+             executor.shutdownNow();
+             Thread.currentThread().interrupt();
+             throw new IllegalStateException("❌ Execução de carga interrompida!", e);
+         }
+         long duracao = System.nanoTime() - inicio;
+         return new RelatorioCarga(total, duracao, servico.instantaneo("Serviço (sem correção)"),
+                 resposta.instantaneo("Resposta (corrigida)"));
+     }
+ }
+ 
  // 🏡 Testando o sistema de pedidos (agora modularizado e extensível!)
 //  public class Main {
 //      public static void main(String[] args) {
@@ -105,7 +2167,53 @@
 //          ProcessadorPedido pedidoPixSMS = new ProcessadorPedido(new PagamentoPix(), new NotificacaoSMS());
  
 //          // ✅ Agora podemos usar diferentes combinações sem modificar a classe principal
-//          pedidoCartaoEmail.processarPedido("Laptop Gamer", 5000, "cliente@email.com");
-//          pedidoPixSMS.processarPedido("Mouse sem fio", 200, "11999999999");
+//          pedidoCartaoEmail.processarPedidoEmCentavos("Laptop Gamer", Dinheiro.deReais(5000), "cliente@email.com");
+//          pedidoPixSMS.processarPedidoEmCentavos("Mouse sem fio", Dinheiro.deReais(200), "11999999999");
+
+//          // ✅ Processamento em lote com estágios em pipeline
+//          List<Pedido> lote = List.of(Pedido.emCentavos("Teclado", Dinheiro.deReais(300), "a@email.com"),
+//                  Pedido.emCentavos("Monitor", Dinheiro.deReais(1200), "b@email.com"));
+//          System.out.println(pedidoCartaoEmail.processarPedidos(lote));
+
+//          // ✅ Notificações assíncronas, agrupadas por destinatário em janelas de 200 ms
+//          NotificacaoAssincrona smsAssincrono = new NotificacaoAssincrona(new NotificacaoSMS(), 10_000, 200, 4);
+//          ProcessadorPedido pedidoPixSMSAssincrono = new ProcessadorPedido(new PagamentoPix(), smsAssincrono);
+//          pedidoPixSMSAssincrono.processarPedidoEmCentavos("Cabo USB", Dinheiro.deReais(30), "11999999999");
+//          pedidoPixSMSAssincrono.processarPedidoEmCentavos("Carregador", Dinheiro.deReais(90), "11999999999");
+//          smsAssincrono.encerrar();
+
+//          // ✅ Retentativas com o mesmo ID devolvem o resultado anterior sem cobrar de novo
+//          ProcessadorPedidoIdempotente idempotente = new ProcessadorPedidoIdempotente(pedidoCartaoEmail, new CacheIdempotencia(100_000, 86_400_000));
+//          idempotente.processarPedidoEmCentavos("PED-1", "Headset", Dinheiro.deReais(450), "cliente@email.com");
+//          idempotente.processarPedidoEmCentavos("PED-1", "Headset", Dinheiro.deReais(450), "cliente@email.com");
+ 
+//          // ✅ Roteamento entre gateways pelo mais rápido e saudável, com disjuntor
+//          PagamentoSimulado lento = new PagamentoSimulado("lento", 80, 0.0);
+//          PagamentoSimulado instavel = new PagamentoSimulado("instavel", 5, 0.3);
+//          RoteadorPagamento roteador = new RoteadorPagamento(List.of(lento, instavel), 3, 1_000);
+//          ProcessadorPedido pedidoRoteado = new ProcessadorPedido(roteador, new NotificacaoEmail());
+//          for (int i = 0; i < 20; i++) {
+//              pedidoRoteado.processarPedidoEmCentavos("Pedido " + i, Dinheiro.deReais(100), "cliente@email.com");
+//          }
+//          roteador.getEstatisticas().forEach(System.out::println);
+ 
+//          // ✅ Latência por implementação, consultável por um exportador de métricas
+//          RegistroMetricas metricas = new RegistroMetricas();
+//          ProcessadorPedido pedidoMedido = new ProcessadorPedido(new PagamentoInstrumentado(new PagamentoCartao(), metricas),
+//                  new NotificacaoInstrumentada(new NotificacaoEmail(), metricas));
+//          pedidoMedido.processarPedidoEmCentavos("Notebook", Dinheiro.deReais(4200), "cliente@email.com");
+//          metricas.instantaneos().forEach(System.out::println);
+ 
+//          // ✅ Carga de 2.000 pedidos/s por 10 s contra um gateway simulado (mediana 20 ms, timeout 500 ms)
+//          Log.configurar(RegistroEventos.NENHUM);
+//          ProcessadorPedido sobCarga = new ProcessadorPedido(new PagamentoSimulado("adquirente", 20, 0.6, 0.01, 500), new NotificacaoEmail());
+//          System.out.println(new GeradorCarga(sobCarga, 64).executarEmCentavos(2_000, 10_000, Dinheiro.deReais(99.90)));
+ 
+//          // ✅ Pedidos aceitos gravados em diário; ao reiniciar, o construtor os recupera
+//          try (DiarioPedidos diario = new DiarioPedidos(Path.of("diario-pedidos"), 64 * 1024 * 1024)) {
+//              ProcessadorPedido duravel = new ProcessadorPedido(new PagamentoPix(), new NotificacaoSMS(), diario);
+//              duravel.processarPedidoEmCentavos("Webcam", Dinheiro.deReais(350), "11999999999");
+//              System.out.println("📜 Pedidos no diário: " + duravel.getPedidos());
+//          }
 //      }
 //  } 
\ No newline at end of file
@@ -25,6 +25,276 @@
  *    - Se `CarroEletrico` herdasse de `Carro` sem modificação, poderia ter **métodos que lidam com combustíveis**.
  *    - O código ficaria confuso e difícil de manter.
  */
+
+ import java.io.PrintStream;
+ import java.util.Arrays;
+ import java.util.concurrent.TimeUnit;
+ import java.util.concurrent.atomic.AtomicLong;
+ import java.util.concurrent.atomic.LongAdder;
+ import java.util.concurrent.locks.LockSupport;
+ 
+ // ✅ NÍVEIS DE LOG (do mais detalhado ao mais grave)
+ enum NivelLog {
+     DEBUG, INFO, AVISO, ERRO
+ }
+ 
+ // ✅ EVENTO DE LOG PRÉ-ALOCADO (um rascunho reutilizado por thread; argumentos primitivos não viram objetos)
+ // Uso: Log.info("Pagamento de R$ {} para {}").com(valor).com(nome).publicar();
+ // A posição no anel só é reservada dentro de publicar(): um evento abandonado (exceção ao calcular
+ // um argumento, publicar() esquecido) não deixa buraco no anel nem trava a thread de escrita.
+ class EventoLog {
+     static final EventoLog DESCARTADO = new EventoLog(null);
+     private static final int MAX_ARGUMENTOS = 4;
+     private static final byte TEXTO = 0;
+     private static final byte DECIMAL = 1;
+     private static final byte INTEIRO = 2;
+ 
+     private final RegistroAssincrono destino; // null: evento descartado ou posição do anel
+     private final String[] textos = new String[MAX_ARGUMENTOS];
+     private final long[] valores = new long[MAX_ARGUMENTOS];
+     private final byte[] tipos = new byte[MAX_ARGUMENTOS];
+     private String modelo;
+     private int argumentos;
+     private volatile long publicado = -1;
+     boolean emUso;
+ 
+     EventoLog(RegistroAssincrono destino) {
+         this.destino = destino;
+     }
+ 
+     void preparar(String modelo) {
+         this.modelo = modelo;
+         this.argumentos = 0;
+         this.emUso = true;
+     }
+ 
+     public EventoLog com(String texto) {
+         if (destino != null && argumentos < MAX_ARGUMENTOS) {
+             tipos[argumentos] = TEXTO;
+             textos[argumentos++] = texto;
+         }
+         return this;
+     }
+ 
+     public EventoLog com(double valor) {
+         if (destino != null && argumentos < MAX_ARGUMENTOS) {
+             tipos[argumentos] = DECIMAL;
+             valores[argumentos++] = Double.doubleToRawLongBits(valor);
+         }
+         return this;
+     }
+ 
+     public EventoLog com(long valor) {
+         if (destino != null && argumentos < MAX_ARGUMENTOS) {
+             tipos[argumentos] = INTEIRO;
+             valores[argumentos++] = valor;
+         }
+         return this;
+     }
+ 
+     // ✅ Obrigatório: entrega o evento à thread de escrita (chamadas repetidas são ignoradas)
+     public void publicar() {
+         if (destino != null && emUso) {
+             emUso = false;
+             destino.publicar(this);
+             Arrays.fill(textos, 0, argumentos, null);
+         }
+     }
+ 
+     // Copia o rascunho para a posição reservada do anel e a libera para a escrita
+     void copiarDe(EventoLog rascunho, long sequencia) {
+         modelo = rascunho.modelo;
+         argumentos = rascunho.argumentos;
+         System.arraycopy(rascunho.textos, 0, textos, 0, argumentos);
+         System.arraycopy(rascunho.valores, 0, valores, 0, argumentos);
+         System.arraycopy(rascunho.tipos, 0, tipos, 0, argumentos);
+         publicado = sequencia;
+     }
+ 
+     boolean publicadoEm(long sequencia) {
+         return publicado == sequencia;
+     }
+ 
+     // Formata substituindo cada "{}" pelo próximo argumento (executado só na thread de escrita)
+     void formatar(StringBuilder saida) {
+         int argumento = 0;
+         for (int i = 0; i < modelo.length(); i++) {
+             char c = modelo.charAt(i);
+             if (c == '{' && i + 1 < modelo.length() && modelo.charAt(i + 1) == '}' && argumento < argumentos) {
+                 if (tipos[argumento] == TEXTO) {
+                     saida.append(textos[argumento]);
+                 } else if (tipos[argumento] == DECIMAL) {
+                     saida.append(Double.longBitsToDouble(valores[argumento]));
+                 } else {
+                     saida.append(valores[argumento]);
+                 }
+                 argumento++;
+                 i++;
+             } else {
+                 saida.append(c);
+             }
+         }
+         Arrays.fill(textos, null);
+     }
+ }
+ 
+ // ✅ DESTINO DE EVENTOS DE LOG (abstração plugável)
+ interface RegistroEventos {
+     // Modo sem custo para benchmarks: nada é formatado nem escrito
+     RegistroEventos NENHUM = (nivel, modelo) -> EventoLog.DESCARTADO;
+ 
+     EventoLog evento(NivelLog nivel, String modelo);
+ 
+     // Aguarda a escrita do que já foi publicado (destinos síncronos não precisam fazer nada)
+     default void descarregar() {
+     }
+ }
+ 
+ // ✅ LOG ASSÍNCRONO EM ANEL: as threads de negócio só preenchem um rascunho próprio e, em publicar(),
+ // copiam para uma posição do anel; formatação e escrita acontecem numa única thread,
+ // sem disputar o lock do System.out. Com o anel cheio, a thread espera com recuo exponencial
+ // por ~2 ms e, se ainda não houver espaço, descarta o evento e conta (nunca fica presa).
+ class RegistroAssincrono implements RegistroEventos {
+     private static final int TENTATIVAS_ANEL_CHEIO = 10;
+ 
+     private final EventoLog[] anel;
+     private final int mascara;
+     private final NivelLog nivelMinimo;
+     private final PrintStream saida;
+     private final AtomicLong cursor = new AtomicLong();
+     private final LongAdder descartados = new LongAdder();
+     private final ThreadLocal<EventoLog> rascunhos = ThreadLocal.withInitial(() -> new EventoLog(this));
+     private volatile long consumido;
+ 
+     public RegistroAssincrono(PrintStream saida, NivelLog nivelMinimo, int capacidade) {
+         if (Integer.bitCount(capacidade) != 1) {
+             throw new IllegalArgumentException("❌ Capacidade do anel deve ser potência de 2!");
+         }
+         this.anel = new EventoLog[capacidade];
+         for (int i = 0; i < capacidade; i++) {
+             anel[i] = new EventoLog(null);
+         }
+         this.mascara = capacidade - 1;
+         this.nivelMinimo = nivelMinimo;
+         this.saida = saida;
+         Thread escritor = new Thread(this::escrever, "log-assincrono");
+         escritor.setDaemon(true);
+         escritor.start();
+         Runtime.getRuntime().addShutdownHook(new Thread(this::descarregar));
+     }
+ 
+     public EventoLog evento(NivelLog nivel, String modelo) {
+         if (nivel.compareTo(nivelMinimo) < 0) {
+             return EventoLog.DESCARTADO;
+         }
+         EventoLog rascunho = rascunhos.get();
+         if (rascunho.emUso) {
+             // Log chamado enquanto outro evento da mesma thread é montado (ou um foi abandonado)
+             rascunho = new EventoLog(this);
+             rascunhos.set(rascunho);
+         }
+         rascunho.preparar(modelo);
+         return rascunho;
+     }
+ 
+     // Reserva só quando há espaço: nenhuma posição reservada fica sem ser preenchida logo em seguida
+     void publicar(EventoLog rascunho) {
+         long sequencia;
+         int tentativas = 0;
+         while (true) {
+             sequencia = cursor.get();
+             if (sequencia - consumido >= anel.length) {
+                 if (++tentativas > TENTATIVAS_ANEL_CHEIO) {
+                     descartados.increment();
+                     return;
+                 }
+                 LockSupport.parkNanos(1_000L << tentativas); // 2 µs, 4 µs, ... ~1 ms
+             } else if (cursor.compareAndSet(sequencia, sequencia + 1)) {
+                 break;
+             }
+         }
+         anel[(int) (sequencia & mascara)].copiarDe(rascunho, sequencia);
+     }
+ 
+     public long descartados() {
+         return descartados.sum();
+     }
+ 
+     // ✅ Espera (até 1 s) a escrita de tudo que já foi publicado; chamado também ao encerrar a JVM
+     @Override
+     public void descarregar() {
+         long alvo = cursor.get();
+         long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+         while (consumido < alvo && System.nanoTime() < limite) {
+             LockSupport.parkNanos(100_000);
+         }
+         saida.flush();
+     }
+ 
+     private void escrever() {
+         StringBuilder linha = new StringBuilder(256);
+         long descartadosInformados = 0;
+         while (true) {
+             if (!escreverProximo(linha)) {
+                 long total = descartados.sum();
+                 if (total > descartadosInformados) {
+                     saida.println("⚠️ Log: " + (total - descartadosInformados) + " evento(s) descartado(s) com o anel cheio");
+                     descartadosInformados = total;
+                 }
+                 LockSupport.parkNanos(50_000);
+             }
+         }
+     }
+ 
+     private boolean escreverProximo(StringBuilder linha) {
+         long proximo = consumido;
+         EventoLog evento = anel[(int) (proximo & mascara)];
+         if (!evento.publicadoEm(proximo)) {
+             return false;
+         }
+         linha.setLength(0);
+         evento.formatar(linha);
+         saida.println(linha);
+         consumido = proximo + 1;
+         return true;
+     }
+ }
+ 
+ // ✅ PONTO DE ACESSO AO LOG (troque o destino com Log.configurar, ex.: RegistroEventos.NENHUM)
+ // O destino padrão inicia, no primeiro uso de Log, uma thread daemon de escrita e um gancho de
+ // desligamento que esvazia o anel. Quem imprime direto no System.out deve chamar Log.descarregar()
+ // antes, senão essa saída pode aparecer intercalada fora de ordem com as linhas de log.
+ final class Log {
+     private static volatile RegistroEventos destino = new RegistroAssincrono(System.out, NivelLog.INFO, 8192);
+ 
+     private Log() {
+     }
+ 
+     public static void configurar(RegistroEventos novoDestino) {
+         destino = novoDestino;
+     }
+ 
+     public static void descarregar() {
+         destino.descarregar();
+     }
+ 
+     public static EventoLog debug(String modelo) {
+         return destino.evento(NivelLog.DEBUG, modelo);
+     }
+ 
+     public static EventoLog info(String modelo) {
+         return destino.evento(NivelLog.INFO, modelo);
+     }
+ 
+     public static EventoLog aviso(String modelo) {
+         return destino.evento(NivelLog.AVISO, modelo);
+     }
+ 
+     public static EventoLog erro(String modelo) {
+         return destino.evento(NivelLog.ERRO, modelo);
+     }
+ }
+ 
  interface Movivel {
      void mover(double velocidade);
      void parar();
@@ -43,7 +313,7 @@
      @Override
      public void parar() {
          this.velocidade = 0;
-         System.out.println("🛑 " + nome + " parou.");
+         Log.info("🛑 {} parou.").com(nome).publicar();
      }
  
      public String getNome() {
@@ -60,7 +330,7 @@
      @Override
      public void mover(double velocidade) {
          this.velocidade += velocidade;
-         System.out.println("🚗 " + nome + " acelerando para " + this.velocidade + " km/h");
+         Log.info("🚗 {} acelerando para {} km/h").com(nome).com(this.velocidade).publicar();
      }
  }
  
@@ -74,12 +344,12 @@
  
      @Override
      public void mover(double velocidade) {
-         System.out.println("🚲 " + nome + " está pedalando a " + velocidade + " km/h");
+         Log.info("🚲 {} está pedalando a {} km/h").com(nome).com(velocidade).publicar();
      }
  
      @Override
      public void parar() {
-         System.out.println("🛑 " + nome + " parou de pedalar.");
+         Log.info("🛑 {} parou de pedalar.").com(nome).publicar();
      }
  }
  
@@ -94,13 +364,13 @@
  
      public void carregarBateria() {
          this.carregado = true;
-         System.out.println("⚡ " + nome + " está carregado!");
+         Log.info("⚡ {} está carregado!").com(nome).publicar();
      }
  
      @Override
      public void mover(double velocidade) {
          if (!carregado) {
-             System.out.println("❌ " + nome + " precisa ser carregado antes de se mover!");
+             Log.aviso("❌ {} precisa ser carregado antes de se mover!").com(nome).publicar();
              return;
          }
          super.mover(velocidade);
@@ -116,11 +386,11 @@
      @Override
      public void mover(double velocidade) {
          if (velocidade > 20) {
-             System.out.println("❌ Trem não pode acelerar tão rápido!");
+             Log.aviso("❌ Trem não pode acelerar tão rápido!").publicar();
              return;
          }
          this.velocidade += velocidade;
-         System.out.println("🚆 " + nome + " se movendo a " + this.velocidade + " km/h nos trilhos.");
+         Log.info("🚆 {} se movendo a {} km/h nos trilhos.").com(nome).com(this.velocidade).publicar();
      }
  }
  
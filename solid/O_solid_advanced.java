@@ -26,79 +26,1640 @@
  *    - A cada novo país adicionado, precisaríamos **modificar a classe principal**, violando o **OCP**.
  */
 
+ import java.io.IOException;
+ import java.io.PrintStream;
+ import java.io.UncheckedIOException;
+ import java.math.RoundingMode;
+ import java.nio.ByteBuffer;
+ import java.nio.MappedByteBuffer;
+ import java.nio.channels.FileChannel;
+ import java.nio.charset.StandardCharsets;
+ import java.nio.file.ClosedWatchServiceException;
+ import java.nio.file.Files;
+ import java.nio.file.Path;
+ import java.nio.file.StandardCopyOption;
+ import java.nio.file.StandardOpenOption;
+ import java.nio.file.StandardWatchEventKinds;
+ import java.nio.file.WatchEvent;
+ import java.nio.file.WatchKey;
+ import java.nio.file.WatchService;
+ import java.time.LocalDate;
+ import java.time.ZoneId;
+ import java.util.ArrayList;
+ import java.util.Arrays;
+ import java.util.Collection;
  import java.util.HashMap;
+ import java.util.HashSet;
+ import java.util.LinkedHashMap;
+ import java.util.List;
  import java.util.Map;
+ import java.util.Set;
+ import java.util.concurrent.ConcurrentHashMap;
+ import java.util.concurrent.ForkJoinPool;
+ import java.util.concurrent.RecursiveAction;
+ import java.util.concurrent.TimeUnit;
+ import java.util.concurrent.atomic.AtomicLong;
+ import java.util.concurrent.atomic.LongAdder;
+ import java.util.concurrent.locks.LockSupport;
+ import java.util.zip.CRC32C;
  
+ // ✅ DINHEIRO EM PONTO FIXO: valores são long em centavos, sem erro de arredondamento binário
+ // Tudo é aritmética estática sobre long, então nada é alocado nem encaixotado. Fatores (ex.:
+ // alíquotas) viram milionésimos inteiros e a multiplicação é feita em 128 bits, com uma única
+ // etapa de arredondamento; um resultado fora do long lança ArithmeticException em vez de saturar.
+ final class Dinheiro {
+     public static final long ESCALA_FATOR = 1_000_000; // fatores com até 6 casas decimais são exatos
+     private static final double LIMITE_CENTAVOS = 0x1p63;
+ 
+     private Dinheiro() {
+     }
+ 
+     // Arredonda para centavos pelo valor decimal que o double representa (0.1 vira 10 centavos e
+     // 2.675 vira 268, como em BigDecimal.valueOf): a diferença de até 2 ulps entre o double e o
+     // meio centavo conta como empate, resolvido com HALF_EVEN.
+     public static long deReais(double reais) {
+         if (Double.isNaN(reais) || Double.isInfinite(reais)) {
+             throw new NumberFormatException("❌ Valor não numérico: " + reais);
+         }
+         double emCentavos = reais * 100;
+         double piso = Math.floor(emCentavos);
+         double fracao = emCentavos - piso;
+         double arredondado;
+         if (Math.abs(fracao - 0.5) <= 2 * Math.ulp(emCentavos)) {
+             arredondado = piso % 2 == 0 ? piso : piso + 1;
+         } else {
+             arredondado = fracao < 0.5 ? piso : piso + 1;
+         }
+         if (arredondado >= LIMITE_CENTAVOS || arredondado < -LIMITE_CENTAVOS) {
+             throw new ArithmeticException("❌ Valor fora do intervalo de centavos: " + reais);
+         }
+         return (long) arredondado;
+     }
+ 
+     // Fator decimal em milionésimos inteiros (0.15 vira 150000); casas além da sexta são arredondadas
+     public static long fatorEmMilionesimos(double fator) {
+         double escalado = Math.rint(fator * ESCALA_FATOR);
+         if (Double.isNaN(escalado) || escalado >= LIMITE_CENTAVOS || escalado < -LIMITE_CENTAVOS) {
+             throw new ArithmeticException("❌ Fator fora do intervalo: " + fator);
+         }
+         return (long) escalado;
+     }
+ 
+     public static long somar(long centavos, long outros) {
+         return Math.addExact(centavos, outros);
+     }
+ 
+     public static long subtrair(long centavos, long outros) {
+         return Math.subtractExact(centavos, outros);
+     }
+ 
+     // Quantidade inteira (ex.: 3 unidades) sem passar por double
+     public static long multiplicar(long centavos, long quantidade) {
+         return Math.multiplyExact(centavos, quantidade);
+     }
+ 
+     // ✅ Multiplica por um fator (ex.: alíquota) com uma única etapa de arredondamento
+     public static long multiplicar(long centavos, double fator, RoundingMode modo) {
+         return multiplicarPorMilionesimos(centavos, fatorEmMilionesimos(fator), modo);
+     }
+
+     // Produto exato dividido por ESCALA_FATOR; o resto da divisão decide o arredondamento
+     public static long multiplicarPorMilionesimos(long centavos, long milionesimos, RoundingMode modo) {
+         if (modo == RoundingMode.HALF_EVEN) {
+             return multiplicarMeioPar(centavos, milionesimos);
+         }
+         return multiplicarEm128Bits(centavos, milionesimos, modo);
+     }
+
+     // Caso geral: qualquer modo de arredondamento, produto em 128 bits sem sinal
+     private static long multiplicarEm128Bits(long centavos, long milionesimos, RoundingMode modo) {
+         boolean negativo = (centavos < 0) != (milionesimos < 0);
+         // Math.abs(Long.MIN_VALUE) continua negativo, mas lido sem sinal é exatamente 2^63
+         long a = Math.abs(centavos);
+         long b = Math.abs(milionesimos);
+         long baixo = a * b;
+         long alto = Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+         long quociente;
+         long resto;
+         if (alto == 0 && baixo >= 0) {
+             // Caso comum (preços e alíquotas reais): o produto cabe em 63 bits, uma divisão basta
+             quociente = baixo / ESCALA_FATOR;
+             resto = baixo - quociente * ESCALA_FATOR;
+         } else {
+             if (Long.compareUnsigned(alto, ESCALA_FATOR) >= 0) {
+                 throw new ArithmeticException("❌ Resultado fora do intervalo de centavos");
+             }
+             // Divisão longa em duas metades de 32 bits: o resto sempre cabe antes do deslocamento
+             long parcial = (alto << 32) | (baixo >>> 32);
+             long quocienteAlto = parcial / ESCALA_FATOR;
+             parcial = ((parcial % ESCALA_FATOR) << 32) | (baixo & 0xFFFFFFFFL);
+             quociente = (quocienteAlto << 32) + parcial / ESCALA_FATOR;
+             resto = parcial % ESCALA_FATOR;
+         }
+         if (quociente >= 0 && resto != 0 && arredondaParaCima(modo, resto, quociente, negativo)) {
+             quociente++;
+         }
+         // Magnitudes a partir de 2^63 (lidas com sinal, ficam negativas) não cabem no long
+         if (quociente < 0) {
+             throw new ArithmeticException("❌ Resultado fora do intervalo de centavos");
+         }
+         return negativo ? -quociente : quociente;
+     }
+
+     // ✅ Caso mais usado (impostos): produto que cabe no long, uma divisão por constante e o desempate no par
+     private static long multiplicarMeioPar(long centavos, long milionesimos) {
+         long produto = centavos * milionesimos;
+         if (Math.multiplyHigh(centavos, milionesimos) != (produto >> 63)) {
+             return multiplicarEm128Bits(centavos, milionesimos, RoundingMode.HALF_EVEN);
+         }
+         long quociente = produto / ESCALA_FATOR; // trunca em direção a zero: o resto tem o sinal do produto
+         long resto = Math.abs(produto - quociente * ESCALA_FATOR);
+         long meio = ESCALA_FATOR / 2;
+         if (resto > meio || (resto == meio && (quociente & 1) != 0)) {
+             quociente += produto < 0 ? -1 : 1;
+         }
+         return quociente;
+     }
+
+     // Decide se a magnitude truncada sobe um centavo (resto > 0, meio = ESCALA_FATOR / 2)
+     private static boolean arredondaParaCima(RoundingMode modo, long resto, long quociente, boolean negativo) {
+         long meio = ESCALA_FATOR / 2;
+         switch (modo) {
+             case UP:
+                 return true;
+             case DOWN:
+                 return false;
+             case CEILING:
+                 return !negativo;
+             case FLOOR:
+                 return negativo;
+             case HALF_UP:
+                 return resto >= meio;
+             case HALF_DOWN:
+                 return resto > meio;
+             case HALF_EVEN:
+                 return resto > meio || (resto == meio && (quociente & 1) != 0);
+             default:
+                 throw new ArithmeticException("❌ Arredondamento necessário");
+         }
+     }
+ 
+     // Escreve "R$ 1234,56" direto no destino, sem criar Strings intermediárias
+     public static void formatar(long centavos, StringBuilder destino) {
+         // Divide antes de trocar o sinal: -Long.MIN_VALUE estouraria, mas o quociente e o resto não
+         long reais = Math.abs(centavos / 100);
+         long resto = Math.abs(centavos % 100);
+         if (centavos < 0) {
+             destino.append('-');
+         }
+         destino.append("R$ ").append(reais).append(',');
+         if (resto < 10) {
+             destino.append('0');
+         }
+         destino.append(resto);
+     }
+ 
+     public static String formatar(long centavos) {
+         StringBuilder texto = new StringBuilder(24);
+         formatar(centavos, texto);
+         return texto.toString();
+     }
+ }
+ 
+ // ✅ NÍVEIS DE LOG (do mais detalhado ao mais grave)
+ enum NivelLog {
+     DEBUG, INFO, AVISO, ERRO
+ }
+ 
+ // ✅ EVENTO DE LOG PRÉ-ALOCADO (um rascunho reutilizado por thread; argumentos primitivos não viram objetos)
+ // Uso: Log.info("Pagamento de R$ {} para {}").com(valor).com(nome).publicar();
+ // A posição no anel só é reservada dentro de publicar(): um evento abandonado (exceção ao calcular
+ // um argumento, publicar() esquecido) não deixa buraco no anel nem trava a thread de escrita.
+ class EventoLog {
+     static final EventoLog DESCARTADO = new EventoLog(null);
+     private static final int MAX_ARGUMENTOS = 4;
+     private static final byte TEXTO = 0;
+     private static final byte DECIMAL = 1;
+     private static final byte INTEIRO = 2;
+     private static final byte DINHEIRO = 3;
+ 
+     private final RegistroAssincrono destino; // null: evento descartado ou posição do anel
+     private final String[] textos = new String[MAX_ARGUMENTOS];
+     private final long[] valores = new long[MAX_ARGUMENTOS];
+     private final byte[] tipos = new byte[MAX_ARGUMENTOS];
+     private String modelo;
+     private int argumentos;
+     private volatile long publicado = -1;
+     boolean emUso;
+ 
+     EventoLog(RegistroAssincrono destino) {
+         this.destino = destino;
+     }
+ 
+     void preparar(String modelo) {
+         this.modelo = modelo;
+         this.argumentos = 0;
+         this.emUso = true;
+     }
+ 
+     public EventoLog com(String texto) {
+         if (destino != null && argumentos < MAX_ARGUMENTOS) {
+             tipos[argumentos] = TEXTO;
+             textos[argumentos++] = texto;
+         }
+         return this;
+     }
+ 
+     public EventoLog com(double valor) {
+         if (destino != null && argumentos < MAX_ARGUMENTOS) {
+             tipos[argumentos] = DECIMAL;
+             valores[argumentos++] = Double.doubleToRawLongBits(valor);
+         }
+         return this;
+     }
+ 
+     public EventoLog com(long valor) {
+         if (destino != null && argumentos < MAX_ARGUMENTOS) {
+             tipos[argumentos] = INTEIRO;
+             valores[argumentos++] = valor;
+         }
+         return this;
+     }
+ 
+     // Valor em centavos, escrito como "R$ 12,34"
+     public EventoLog comDinheiro(long centavos) {
+         if (destino != null && argumentos < MAX_ARGUMENTOS) {
+             tipos[argumentos] = DINHEIRO;
+             valores[argumentos++] = centavos;
+         }
+         return this;
+     }
+ 
+     // ✅ Obrigatório: entrega o evento à thread de escrita (chamadas repetidas são ignoradas)
+     public void publicar() {
+         if (destino != null && emUso) {
+             emUso = false;
+             destino.publicar(this);
+             Arrays.fill(textos, 0, argumentos, null);
+         }
+     }
+ 
+     // Copia o rascunho para a posição reservada do anel e a libera para a escrita
+     void copiarDe(EventoLog rascunho, long sequencia) {
+         modelo = rascunho.modelo;
+         argumentos = rascunho.argumentos;
+         System.arraycopy(rascunho.textos, 0, textos, 0, argumentos);
+         System.arraycopy(rascunho.valores, 0, valores, 0, argumentos);
+         System.arraycopy(rascunho.tipos, 0, tipos, 0, argumentos);
+         publicado = sequencia;
+     }
+ 
+     boolean publicadoEm(long sequencia) {
+         return publicado == sequencia;
+     }
+ 
+     // Formata substituindo cada "{}" pelo próximo argumento (executado só na thread de escrita)
+     void formatar(StringBuilder saida) {
+         int argumento = 0;
+         for (int i = 0; i < modelo.length(); i++) {
+             char c = modelo.charAt(i);
+             if (c == '{' && i + 1 < modelo.length() && modelo.charAt(i + 1) == '}' && argumento < argumentos) {
+                 if (tipos[argumento] == TEXTO) {
+                     saida.append(textos[argumento]);
+                 } else if (tipos[argumento] == DECIMAL) {
+                     saida.append(Double.longBitsToDouble(valores[argumento]));
+                 } else if (tipos[argumento] == DINHEIRO) {
+                     Dinheiro.formatar(valores[argumento], saida);
+                 } else {
+                     saida.append(valores[argumento]);
+                 }
+                 argumento++;
+                 i++;
+             } else {
+                 saida.append(c);
+             }
+         }
+         Arrays.fill(textos, null);
+     }
+ }
+ 
+ // ✅ DESTINO DE EVENTOS DE LOG (abstração plugável)
+ interface RegistroEventos {
+     // Modo sem custo para benchmarks: nada é formatado nem escrito
+     RegistroEventos NENHUM = (nivel, modelo) -> EventoLog.DESCARTADO;
+ 
+     EventoLog evento(NivelLog nivel, String modelo);
+ 
+     // Aguarda a escrita do que já foi publicado (destinos síncronos não precisam fazer nada)
+     default void descarregar() {
+     }
+ }
+ 
+ // ✅ LOG ASSÍNCRONO EM ANEL: as threads de negócio só preenchem um rascunho próprio e, em publicar(),
+ // copiam para uma posição do anel; formatação e escrita acontecem numa única thread,
+ // sem disputar o lock do System.out. Com o anel cheio, a thread espera com recuo exponencial
+ // por ~2 ms e, se ainda não houver espaço, descarta o evento e conta (nunca fica presa).
+ class RegistroAssincrono implements RegistroEventos {
+     private static final int TENTATIVAS_ANEL_CHEIO = 10;
+ 
+     private final EventoLog[] anel;
+     private final int mascara;
+     private final NivelLog nivelMinimo;
+     private final PrintStream saida;
+     private final AtomicLong cursor = new AtomicLong();
+     private final LongAdder descartados = new LongAdder();
+     private final ThreadLocal<EventoLog> rascunhos = ThreadLocal.withInitial(() -> new EventoLog(this));
+     private volatile long consumido;
+ 
+     public RegistroAssincrono(PrintStream saida, NivelLog nivelMinimo, int capacidade) {
+         if (Integer.bitCount(capacidade) != 1) {
+             throw new IllegalArgumentException("❌ Capacidade do anel deve ser potência de 2!");
+         }
+         this.anel = new EventoLog[capacidade];
+         for (int i = 0; i < capacidade; i++) {
+             anel[i] = new EventoLog(null);
+         }
+         this.mascara = capacidade - 1;
+         this.nivelMinimo = nivelMinimo;
+         this.saida = saida;
+         Thread escritor = new Thread(this::escrever, "log-assincrono");
+         escritor.setDaemon(true);
+         escritor.start();
+         Runtime.getRuntime().addShutdownHook(new Thread(this::descarregar));
+     }
+ 
+     public EventoLog evento(NivelLog nivel, String modelo) {
+         if (nivel.compareTo(nivelMinimo) < 0) {
+             return EventoLog.DESCARTADO;
+         }
+         EventoLog rascunho = rascunhos.get();
+         if (rascunho.emUso) {
+             // Log chamado enquanto outro evento da mesma thread é montado (ou um foi abandonado)
+             rascunho = new EventoLog(this);
+             rascunhos.set(rascunho);
+         }
+         rascunho.preparar(modelo);
+         return rascunho;
+     }
+ 
+     // Reserva só quando há espaço: nenhuma posição reservada fica sem ser preenchida logo em seguida
+     void publicar(EventoLog rascunho) {
+         long sequencia;
+         int tentativas = 0;
+         while (true) {
+             sequencia = cursor.get();
+             if (sequencia - consumido >= anel.length) {
+                 if (++tentativas > TENTATIVAS_ANEL_CHEIO) {
+                     descartados.increment();
+                     return;
+                 }
+                 LockSupport.parkNanos(1_000L << tentativas); // 2 µs, 4 µs, ... ~1 ms
+             } else if (cursor.compareAndSet(sequencia, sequencia + 1)) {
+                 break;
+             }
+         }
+         anel[(int) (sequencia & mascara)].copiarDe(rascunho, sequencia);
+     }
+ 
+     public long descartados() {
+         return descartados.sum();
+     }
+ 
+     // ✅ Espera (até 1 s) a escrita de tudo que já foi publicado; chamado também ao encerrar a JVM
+     @Override
+     public void descarregar() {
+         long alvo = cursor.get();
+         long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+         while (consumido < alvo && System.nanoTime() < limite) {
+             LockSupport.parkNanos(100_000);
+         }
+         saida.flush();
+     }
+ 
+     private void escrever() {
+         StringBuilder linha = new StringBuilder(256);
+         long descartadosInformados = 0;
+         while (true) {
+             if (!escreverProximo(linha)) {
+                 long total = descartados.sum();
+                 if (total > descartadosInformados) {
+                     saida.println("⚠️ Log: " + (total - descartadosInformados) + " evento(s) descartado(s) com o anel cheio");
+                     descartadosInformados = total;
+                 }
+                 LockSupport.parkNanos(50_000);
+             }
+         }
+     }
+ 
+     private boolean escreverProximo(StringBuilder linha) {
+         long proximo = consumido;
+         EventoLog evento = anel[(int) (proximo & mascara)];
+         if (!evento.publicadoEm(proximo)) {
+             return false;
+         }
+         linha.setLength(0);
+         evento.formatar(linha);
+         saida.println(linha);
+         consumido = proximo + 1;
+         return true;
+     }
+ }
+ 
+ // ✅ PONTO DE ACESSO AO LOG (troque o destino com Log.configurar, ex.: RegistroEventos.NENHUM)
+ // O destino padrão inicia, no primeiro uso de Log, uma thread daemon de escrita e um gancho de
+ // desligamento que esvazia o anel. Quem imprime direto no System.out deve chamar Log.descarregar()
+ // antes, senão essa saída pode aparecer intercalada fora de ordem com as linhas de log.
+ final class Log {
+     private static volatile RegistroEventos destino = new RegistroAssincrono(System.out, NivelLog.INFO, 8192);
+ 
+     private Log() {
+     }
+ 
+     public static void configurar(RegistroEventos novoDestino) {
+         destino = novoDestino;
+     }
+ 
+     public static void descarregar() {
+         destino.descarregar();
+     }
+ 
+     public static EventoLog debug(String modelo) {
+         return destino.evento(NivelLog.DEBUG, modelo);
+     }
+ 
+     public static EventoLog info(String modelo) {
+         return destino.evento(NivelLog.INFO, modelo);
+     }
+ 
+     public static EventoLog aviso(String modelo) {
+         return destino.evento(NivelLog.AVISO, modelo);
+     }
+ 
+     public static EventoLog erro(String modelo) {
+         return destino.evento(NivelLog.ERRO, modelo);
+     }
+ }
+
  // ✅ Criamos uma interface que representa qualquer cálculo de imposto
  interface RegraDeImposto {
      double calcular(String categoria, double preco);
  }
  
- // ✅ Implementação do imposto para o Brasil
- class ImpostoBrasil implements RegraDeImposto {
-     private static final Map<String, Double> taxas = new HashMap<>();
+ // ✅ Catálogo de categorias: cada nome recebe um ID inteiro denso
+ // O ID 0 (OUTROS) representa qualquer categoria sem alíquota própria.
+ // Categorias registradas pelo código são fixas. As que vêm de arquivo são retidas por quem leu a tabela e,
+ // quando nenhuma tabela carregada as usa, o ID volta para uma lista de livres e é reaproveitado: recargas
+ // que renomeiam categorias não fazem o catálogo crescer sem fim. Por isso o ID de uma categoria de arquivo
+ // só vale enquanto alguma tabela publicada a contém; não guarde esses IDs entre recargas.
+ final class Categorias {
+     public static final int OUTROS = 0;
+     private static final int FIXA = -1; // em referencias: registrada pelo código, nunca liberada
+     private static final Map<String, Integer> ids = new ConcurrentHashMap<>();
+     private static volatile String[] nomes = { "outros", null, null, null };
+     private static volatile int quantidade = 1;
+     // Só acessados sob o lock da classe
+     private static int[] referencias = { FIXA, 0, 0, 0 };
+     private static int[] livres = new int[4];
+     private static int totalLivres;
+ 
+     public static final int ELETRONICO = registrar("eletronico");
+     public static final int LIVRO = registrar("livro");
+     public static final int ALIMENTO = registrar("alimento");
  
-     static {
-         taxas.put("eletronico", 0.30);
-         taxas.put("livro", 0.10);
-         taxas.put("alimento", 0.05);
+     private Categorias() {
      }
  
-     public double calcular(String categoria, double preco) {
-         return preco * taxas.getOrDefault(categoria, 0.15);
+     public static synchronized int registrar(String categoria) {
+         int id = reservar(categoria);
+         referencias[id] = FIXA;
+         return id;
+     }
+
+     // Categoria de tabela carregada: cada retenção precisa de um liberar correspondente
+     static synchronized int reter(String categoria) {
+         int id = reservar(categoria);
+         if (referencias[id] != FIXA) {
+             referencias[id]++;
+         }
+         return id;
+     }
+
+     static synchronized void liberar(String categoria) {
+         Integer id = ids.get(categoria);
+         if (id == null || referencias[id] == FIXA || --referencias[id] > 0) {
+             return;
+         }
+         ids.remove(categoria);
+         nomes[id] = null;
+         if (totalLivres == livres.length) {
+             livres = Arrays.copyOf(livres, livres.length * 2);
+         }
+         livres[totalLivres++] = id;
+     }
+
+     private static int reservar(String categoria) {
+         Integer existente = ids.get(categoria);
+         if (existente != null) {
+             return existente;
+         }
+         // Primeiro reaproveita IDs liberados; depois cresce geometricamente (milhares de categorias
+         // não copiam o vetor a cada uma)
+         int id = totalLivres > 0 ? livres[--totalLivres] : quantidade;
+         String[] atuais = nomes;
+         if (id >= atuais.length) {
+             atuais = Arrays.copyOf(atuais, atuais.length * 2);
+             referencias = Arrays.copyOf(referencias, atuais.length);
+         }
+         atuais[id] = categoria;
+         referencias[id] = 0;
+         nomes = atuais;
+         if (id == quantidade) {
+             quantidade = id + 1;
+         }
+         ids.put(categoria, id);
+         return id;
+     }
+ 
+     // Não aloca: o Integer vem do próprio mapa. Categoria nula é OUTROS, como qualquer nome sem alíquota própria
+     public static int id(String categoria) {
+         if (categoria == null) {
+             return OUTROS;
+         }
+         Integer id = ids.get(categoria);
+         return id == null ? OUTROS : id;
+     }
+ 
+     // IDs desconhecidos ou liberados são tratados como OUTROS, como nas tabelas de alíquotas; negativos são recusados
+     public static String nome(int id) {
+         validar(id);
+         int total = quantidade; // lido antes do vetor: garante que o vetor já tem essa posição
+         String[] atuais = nomes;
+         String nome = id > OUTROS && id < total ? atuais[id] : null;
+         return nome != null ? nome : atuais[OUTROS];
+     }
+
+     // Maior ID já entregue + 1 (IDs liberados no meio continuam contando)
+     public static int quantidade() {
+         return quantidade;
+     }
+
+     // O catálogo nunca entrega ID negativo: é erro de quem chamou, não uma categoria desconhecida
+     public static int validar(int id) {
+         if (id < 0) {
+             throw new IllegalArgumentException("❌ Categoria inválida: " + id);
+         }
+         return id;
      }
  }
  
- // ✅ Implementação do imposto para os EUA
- class ImpostoEUA implements RegraDeImposto {
-     private static final Map<String, Double> taxas = new HashMap<>();
+ // ✅ Regra com alíquota fixa por categoria, guardada num vetor indexado pelo ID da categoria
+ abstract class ImpostoTabelado implements RegraDeImposto {
+     private double[] taxas;
+ 
+     protected ImpostoTabelado(double taxaPadrao) {
+         this.taxas = new double[] { taxaPadrao };
+     }
+
+     // Tabela já pronta, indexada por ID de categoria (posição OUTROS = taxa padrão)
+     ImpostoTabelado(double[] taxas) {
+         if (taxas.length == 0) {
+             throw new IllegalArgumentException("❌ Tabela de alíquotas vazia!");
+         }
+         this.taxas = taxas.clone();
+     }
  
-     static {
-         taxas.put("eletronico", 0.25);
-         taxas.put("livro", 0.08);
-         taxas.put("alimento", 0.02);
+     // Usado apenas nos construtores das subclasses: depois de pronta, a tabela não muda
+     protected final void definir(String categoria, double taxa) {
+         definir(Categorias.registrar(categoria), taxa);
+     }
+
+     final void definir(int id, double taxa) {
+         if (id >= taxas.length) {
+             int tamanhoAnterior = taxas.length;
+             taxas = Arrays.copyOf(taxas, Math.max(id + 1, tamanhoAnterior * 2));
+             Arrays.fill(taxas, tamanhoAnterior, taxas.length, taxas[Categorias.OUTROS]);
+         }
+         taxas[id] = taxa;
+     }
+ 
+     public double taxa(int categoria) {
+         Categorias.validar(categoria);
+         return categoria < taxas.length ? taxas[categoria] : taxas[Categorias.OUTROS];
      }
  
      public double calcular(String categoria, double preco) {
-         return preco * taxas.getOrDefault(categoria, 0.10);
+         return preco * taxa(Categorias.id(categoria));
+     }
+ 
+     public double taxaPadrao() {
+         return taxas[Categorias.OUTROS];
+     }
+ 
+     double[] tabela() {
+         return taxas.clone();
+     }
+
+     // Mesma tabela em milionésimos (veja Dinheiro): o caminho em centavos não passa por double
+     long[] tabelaMilionesimos() {
+         long[] milionesimos = new long[taxas.length];
+         for (int i = 0; i < taxas.length; i++) {
+             milionesimos[i] = Dinheiro.fatorEmMilionesimos(taxas[i]);
+         }
+         return milionesimos;
+     }
+ }
+ 
+ // ✅ Implementação do imposto para o Brasil
+ class ImpostoBrasil extends ImpostoTabelado {
+     public ImpostoBrasil() {
+         super(0.15);
+         definir("eletronico", 0.30);
+         definir("livro", 0.10);
+         definir("alimento", 0.05);
+     }
+ }
+ 
+ // ✅ Implementação do imposto para os EUA
+ class ImpostoEUA extends ImpostoTabelado {
+     public ImpostoEUA() {
+         super(0.10);
+         definir("eletronico", 0.25);
+         definir("livro", 0.08);
+         definir("alimento", 0.02);
      }
  }
  
  // ✅ Implementação do imposto para a Europa
- class ImpostoEuropa implements RegraDeImposto {
-     private static final Map<String, Double> taxas = new HashMap<>();
+ class ImpostoEuropa extends ImpostoTabelado {
+     public ImpostoEuropa() {
+         super(0.20);
+         definir("eletronico", 0.40);
+         definir("livro", 0.12);
+         definir("alimento", 0.07);
+     }
+ }
+ 
+ // ✅ Impostos empilhados (ex.: federal + estadual + municipal) fundidos numa única tabela
+ // O construtor combina as alíquotas de cada categoria uma vez; depois, cada item custa uma
+ // consulta à tabela, em vez de uma chamada calcular() por camada.
+ final class ImpostoComposto extends ImpostoTabelado {
+     private ImpostoComposto(double[] taxas) {
+         super(taxas);
+     }
+ 
+     public static Construtor construtor() {
+         return new Construtor();
+     }
+ 
+     public static final class Construtor {
+         private final List<ImpostoTabelado> camadas = new ArrayList<>();
+         private final List<Boolean> cascatas = new ArrayList<>();
+ 
+         private Construtor() {
+         }
+ 
+         // Incide sobre o preço, somando-se às camadas anteriores
+         public Construtor somar(ImpostoTabelado camada) {
+             camadas.add(camada);
+             cascatas.add(false);
+             return this;
+         }
+ 
+         // Incide sobre o preço já acrescido das camadas anteriores (imposto sobre imposto)
+         public Construtor emCascata(ImpostoTabelado camada) {
+             camadas.add(camada);
+             cascatas.add(true);
+             return this;
+         }
+ 
+         public ImpostoComposto construir() {
+             if (camadas.isEmpty()) {
+                 throw new IllegalStateException("❌ Informe ao menos uma camada de imposto!");
+             }
+             int tamanho = 1;
+             for (ImpostoTabelado camada : camadas) {
+                 tamanho = Math.max(tamanho, camada.tabela().length);
+             }
+             double[] efetivas = new double[tamanho];
+             for (int c = 0; c < tamanho; c++) {
+                 double acumulada = 0;
+                 for (int i = 0; i < camadas.size(); i++) {
+                     double taxa = camadas.get(i).taxa(c);
+                     acumulada += cascatas.get(i) ? taxa * (1 + acumulada) : taxa;
+                 }
+                 efetivas[c] = acumulada;
+             }
+             return new ImpostoComposto(efetivas);
+         }
+     }
+ }
+ 
+ // ✅ Faixas progressivas (como no imposto de renda): cada alíquota vale só para a parte do preço na faixa
+ // O imposto acumulado até o início de cada faixa é pré-calculado, então qualquer preço custa
+ // uma busca binária e uma multiplicação, em vez de percorrer as faixas uma a uma.
+ final class FaixasProgressivas {
+     private final double[] inicios;
+     private final double[] aliquotas;
+     private final double[] acumulado;
+ 
+     // inicios[0] deve ser 0 e os inícios devem ser crescentes; aliquotas[i] vale a partir de inicios[i]
+     public FaixasProgressivas(double[] inicios, double[] aliquotas) {
+         if (inicios.length == 0 || inicios.length != aliquotas.length || inicios[0] != 0) {
+             throw new IllegalArgumentException("❌ Faixas progressivas inválidas!");
+         }
+         this.inicios = inicios.clone();
+         this.aliquotas = aliquotas.clone();
+         this.acumulado = new double[inicios.length];
+         for (int i = 1; i < inicios.length; i++) {
+             if (inicios[i] <= inicios[i - 1]) {
+                 throw new IllegalArgumentException("❌ Inícios das faixas devem ser crescentes!");
+             }
+             acumulado[i] = acumulado[i - 1] + (inicios[i] - inicios[i - 1]) * aliquotas[i - 1];
+         }
+     }
+ 
+     public double imposto(double preco) {
+         if (preco <= 0) {
+             return 0;
+         }
+         int faixa = Arrays.binarySearch(inicios, preco);
+         if (faixa < 0) {
+             faixa = -faixa - 2; // última faixa que começa antes do preço
+         }
+         return acumulado[faixa] + (preco - inicios[faixa]) * aliquotas[faixa];
+     }
+ }
+ 
+ // ✅ Regra progressiva: faixas próprias por categoria, com faixas padrão para as demais
+ class ImpostoProgressivo implements RegraDeImposto {
+     private final FaixasProgressivas[] faixas;
  
-     static {
-         taxas.put("eletronico", 0.40);
-         taxas.put("livro", 0.12);
-         taxas.put("alimento", 0.07);
+     public ImpostoProgressivo(FaixasProgressivas padrao, Map<String, FaixasProgressivas> porCategoria) {
+         int tamanho = 1;
+         for (String categoria : porCategoria.keySet()) {
+             tamanho = Math.max(tamanho, Categorias.registrar(categoria) + 1);
+         }
+         this.faixas = new FaixasProgressivas[tamanho];
+         Arrays.fill(faixas, padrao);
+         for (Map.Entry<String, FaixasProgressivas> entrada : porCategoria.entrySet()) {
+             faixas[Categorias.id(entrada.getKey())] = entrada.getValue();
+         }
      }
  
      public double calcular(String categoria, double preco) {
-         return preco * taxas.getOrDefault(categoria, 0.20);
+         return calcular(Categorias.id(categoria), preco);
+     }
+ 
+     public double calcular(int categoria, double preco) {
+         Categorias.validar(categoria);
+         return faixas[categoria < faixas.length ? categoria : Categorias.OUTROS].imposto(preco);
+     }
+ }
+ 
+ // ✅ Regra carregada de arquivo (mesma tabela por ID das regras fixas no código)
+ class ImpostoCarregado extends ImpostoTabelado {
+     public ImpostoCarregado(double taxaPadrao, String[] categorias, double[] taxas) {
+         super(taxaPadrao);
+         for (int i = 0; i < categorias.length; i++) {
+             definir(categorias[i], taxas[i]);
+         }
+     }
+
+     // Categorias já retidas no catálogo por quem leu o arquivo
+     ImpostoCarregado(double taxaPadrao, int[] categorias, double[] taxas) {
+         super(taxaPadrao);
+         for (int i = 0; i < categorias.length; i++) {
+             definir(categorias[i], taxas[i]);
+         }
+     }
+ }
+ 
+ // ✅ Arquivo binário de tabelas de impostos (lido por mapeamento em memória, sem parsing de texto)
+ // Formato: [mágico int][formato int][versão long][países int]
+ //          por país: [nome][taxa padrão double][categorias int] e por categoria: [nome][taxa double]
+ //          [crc32c int] do conteúdo anterior. Nomes: [bytes short][UTF-8].
+ // Cada leitura retém suas categorias no catálogo; quem leu chama liberarCategorias() quando as regras
+ // saem de uso, e os IDs delas podem ser reaproveitados.
+ final class ArquivoTabelaImpostos {
+     private static final int MAGICO = 0x494D5054; // "IMPT"
+     private static final int FORMATO = 1;
+ 
+     private final long versao;
+     private final Map<String, ImpostoCarregado> regras;
+     private final Set<String> categorias;
+ 
+     private ArquivoTabelaImpostos(long versao, Map<String, ImpostoCarregado> regras, Set<String> categorias) {
+         this.versao = versao;
+         this.regras = regras;
+         this.categorias = categorias;
+     }
+ 
+     public long getVersao() {
+         return versao;
+     }
+ 
+     public Map<String, ImpostoCarregado> getRegras() {
+         return regras;
+     }
+
+     public synchronized void liberarCategorias() {
+         for (String categoria : categorias) {
+             Categorias.liberar(categoria);
+         }
+         categorias.clear();
+     }
+ 
+     public static ArquivoTabelaImpostos ler(Path arquivo) {
+         try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+             MappedByteBuffer dados = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+             if (dados.limit() < 24 || dados.getInt() != MAGICO || dados.getInt() != FORMATO) {
+                 throw new IllegalArgumentException("❌ Arquivo de impostos inválido: " + arquivo);
+             }
+             CRC32C crc = new CRC32C();
+             crc.update(dados.duplicate().position(0).limit(dados.limit() - 4));
+             if ((int) crc.getValue() != dados.getInt(dados.limit() - 4)) {
+                 throw new IllegalArgumentException("❌ Arquivo de impostos corrompido: " + arquivo);
+             }
+             long versao = dados.getLong();
+             int paises = dados.getInt();
+             String[] nomesPaises = new String[paises];
+             double[] taxasPadrao = new double[paises];
+             String[][] categorias = new String[paises][];
+             double[][] taxas = new double[paises][];
+             for (int p = 0; p < paises; p++) {
+                 nomesPaises[p] = lerNome(dados);
+                 taxasPadrao[p] = dados.getDouble();
+                 int quantidade = dados.getInt();
+                 categorias[p] = new String[quantidade];
+                 taxas[p] = new double[quantidade];
+                 for (int c = 0; c < quantidade; c++) {
+                     categorias[p][c] = lerNome(dados);
+                     taxas[p][c] = dados.getDouble();
+                 }
+             }
+             // Só retém categorias depois de ler o arquivo inteiro: um arquivo truncado não deixa nada retido
+             Map<String, Integer> retidas = new HashMap<>();
+             Map<String, ImpostoCarregado> regras = new LinkedHashMap<>();
+             for (int p = 0; p < paises; p++) {
+                 int[] ids = new int[categorias[p].length];
+                 for (int c = 0; c < ids.length; c++) {
+                     ids[c] = retidas.computeIfAbsent(categorias[p][c], Categorias::reter);
+                 }
+                 regras.put(nomesPaises[p], new ImpostoCarregado(taxasPadrao[p], ids, taxas[p]));
+             }
+             return new ArquivoTabelaImpostos(versao, regras, new HashSet<>(retidas.keySet()));
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao ler tabela de impostos", e);
+         }
+     }
+ 
+     // ✅ Grava num arquivo temporário e move por cima: leitores nunca veem um arquivo pela metade
+     public static void escrever(Path arquivo, long versao, Map<String, ? extends ImpostoTabelado> regras) {
+         int tamanho = 24;
+         for (Map.Entry<String, ? extends ImpostoTabelado> entrada : regras.entrySet()) {
+             tamanho += 2 + bytesNome(entrada.getKey()).length + 12;
+             double[] tabela = entrada.getValue().tabela();
+             for (int c = 1; c < tabela.length; c++) {
+                 if (tabela[c] != tabela[Categorias.OUTROS]) {
+                     tamanho += 2 + bytesNome(Categorias.nome(c)).length + 8;
+                 }
+             }
+         }
+         ByteBuffer dados = ByteBuffer.allocate(tamanho);
+         dados.putInt(MAGICO).putInt(FORMATO).putLong(versao).putInt(regras.size());
+         for (Map.Entry<String, ? extends ImpostoTabelado> entrada : regras.entrySet()) {
+             double[] tabela = entrada.getValue().tabela();
+             escreverNome(dados, entrada.getKey());
+             dados.putDouble(tabela[Categorias.OUTROS]);
+             int posicaoQuantidade = dados.position();
+             dados.putInt(0);
+             int quantidade = 0;
+             for (int c = 1; c < tabela.length; c++) {
+                 if (tabela[c] != tabela[Categorias.OUTROS]) {
+                     escreverNome(dados, Categorias.nome(c));
+                     dados.putDouble(tabela[c]);
+                     quantidade++;
+                 }
+             }
+             dados.putInt(posicaoQuantidade, quantidade);
+         }
+         CRC32C crc = new CRC32C();
+         crc.update(dados.array(), 0, dados.position());
+         dados.putInt((int) crc.getValue());
+         dados.flip();
+         try {
+             Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+             try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+                 while (dados.hasRemaining()) {
+                     canal.write(dados);
+                 }
+                 canal.force(true);
+             }
+             Files.move(temporario, arquivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao gravar tabela de impostos", e);
+         }
+     }
+ 
+     private static String lerNome(ByteBuffer dados) {
+         byte[] bytes = new byte[dados.getShort() & 0xFFFF];
+         dados.get(bytes);
+         return new String(bytes, StandardCharsets.UTF_8);
+     }
+ 
+     // O tamanho vai num short sem sinal: nomes acima de 65535 bytes seriam truncados ao ler
+     private static byte[] bytesNome(String nome) {
+         byte[] bytes = nome.getBytes(StandardCharsets.UTF_8);
+         if (bytes.length > 0xFFFF) {
+             throw new IllegalArgumentException("❌ Nome com mais de 65535 bytes na tabela de impostos!");
+         }
+         return bytes;
+     }
+
+     private static void escreverNome(ByteBuffer dados, String nome) {
+         byte[] bytes = bytesNome(nome);
+         dados.putShort((short) bytes.length).put(bytes);
+     }
+ }
+ 
+ // ✅ Observa o arquivo de tabelas e publica as regras novas na calculadora sem pausar os cálculos
+ // O arquivo é a fonte dos países que ele traz: um país que sai do arquivo sai da calculadora.
+ class RecarregadorImpostos implements AutoCloseable {
+     private final CalculadoraImposto calculadora;
+     private final Path arquivo;
+     private final WatchService observador;
+     private volatile long versaoCarregada = Long.MIN_VALUE;
+     private ArquivoTabelaImpostos tabelaCarregada; // só alterada em recarregar(), sob o lock
+ 
+     public RecarregadorImpostos(CalculadoraImposto calculadora, Path arquivo) {
+         this.calculadora = calculadora;
+         this.arquivo = arquivo.toAbsolutePath();
+         try {
+             this.observador = this.arquivo.getFileSystem().newWatchService();
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao observar tabela de impostos", e);
+         }
+         // Se qualquer passo seguinte falhar, o WatchService (e seu descritor) não pode ficar aberto
+         try {
+             this.arquivo.getParent().register(observador, StandardWatchEventKinds.ENTRY_CREATE,
+                     StandardWatchEventKinds.ENTRY_MODIFY);
+             recarregar();
+         } catch (IOException e) {
+             fecharAposFalha(e);
+             throw new UncheckedIOException("❌ Falha ao observar tabela de impostos", e);
+         } catch (RuntimeException e) {
+             fecharAposFalha(e);
+             throw e;
+         }
+         Thread thread = new Thread(this::observar, "recarregador-impostos");
+         thread.setDaemon(true);
+         thread.start();
+     }
+ 
+     private void fecharAposFalha(Exception falha) {
+         try {
+             observador.close();
+         } catch (IOException e) {
+             falha.addSuppressed(e);
+         }
+     }
+ 
+     // ✅ Versões iguais ou mais antigas que a carregada são ignoradas
+     // As categorias da tabela anterior só são liberadas depois que a nova foi publicada.
+     public synchronized boolean recarregar() {
+         ArquivoTabelaImpostos tabela = ArquivoTabelaImpostos.ler(arquivo);
+         if (tabela.getVersao() <= versaoCarregada) {
+             tabela.liberarCategorias();
+             return false;
+         }
+         Set<String> removidos = new HashSet<>();
+         if (tabelaCarregada != null) {
+             removidos.addAll(tabelaCarregada.getRegras().keySet());
+             removidos.removeAll(tabela.getRegras().keySet());
+         }
+         try {
+             calculadora.trocarRegras(removidos, tabela.getRegras());
+         } catch (RuntimeException e) {
+             tabela.liberarCategorias();
+             throw e;
+         }
+         ArquivoTabelaImpostos anterior = tabelaCarregada;
+         tabelaCarregada = tabela;
+         versaoCarregada = tabela.getVersao();
+         if (anterior != null) {
+             anterior.liberarCategorias();
+         }
+         return true;
+     }
+ 
+     public long getVersaoCarregada() {
+         return versaoCarregada;
+     }
+ 
+     private void observar() {
+         try {
+             while (true) {
+                 WatchKey chave = observador.take();
+                 for (WatchEvent<?> evento : chave.pollEvents()) {
+                     if (arquivo.getFileName().equals(evento.context())) {
+                         try {
+                             recarregar();
+                         } catch (RuntimeException e) {
+                             // Arquivo inválido: as regras atuais continuam valendo
+                             Log.erro("❌ Falha ao recarregar tabela de impostos: {}").com(String.valueOf(e.getMessage())).publicar();
+                         }
+                     }
+                 }
+                 chave.reset();
+             }
+         } catch (InterruptedException | ClosedWatchServiceException e) {
+             Thread.currentThread().interrupt();
+         }
+     }
+ 
+     @Override
+     public void close() {
+         try {
+             observador.close();
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao encerrar observação da tabela de impostos", e);
+         }
+     }
+ }
+ 
+ // ✅ Versões de regra de um país ordenadas pela data de início de vigência (em dias desde 1970)
+ final class HistoricoRegras {
+     // Início da versão que veio de uma regra sem data: vale para qualquer dia até a próxima versão
+     static final long DESDE_SEMPRE = Long.MIN_VALUE;
+
+     final long[] inicios;
+     final RegraDeImposto[] regras;
+     final double[][] taxas;
+     final long[][] milionesimos; // as mesmas linhas em milionésimos, para o caminho em centavos
+
+     HistoricoRegras(long[] inicios, RegraDeImposto[] regras, double[][] taxas, long[][] milionesimos) {
+         this.inicios = inicios;
+         this.regras = regras;
+         this.taxas = taxas;
+         this.milionesimos = milionesimos;
+     }
+ 
+     // ✅ Copy-on-write: inclui a versão na posição certa (ou substitui a do mesmo dia)
+     HistoricoRegras comVersao(long inicio, RegraDeImposto regra) {
+         int posicao = Arrays.binarySearch(inicios, inicio);
+         boolean substitui = posicao >= 0;
+         if (!substitui) {
+             posicao = -posicao - 1;
+         }
+         int tamanho = inicios.length + (substitui ? 0 : 1);
+         long[] novosInicios = new long[tamanho];
+         RegraDeImposto[] novasRegras = new RegraDeImposto[tamanho];
+         double[][] novasTaxas = new double[tamanho][];
+         long[][] novosMilionesimos = new long[tamanho][];
+         int pulo = substitui ? 1 : 0;
+         System.arraycopy(inicios, 0, novosInicios, 0, posicao);
+         System.arraycopy(regras, 0, novasRegras, 0, posicao);
+         System.arraycopy(taxas, 0, novasTaxas, 0, posicao);
+         System.arraycopy(milionesimos, 0, novosMilionesimos, 0, posicao);
+         System.arraycopy(inicios, posicao + pulo, novosInicios, posicao + 1, inicios.length - posicao - pulo);
+         System.arraycopy(regras, posicao + pulo, novasRegras, posicao + 1, regras.length - posicao - pulo);
+         System.arraycopy(taxas, posicao + pulo, novasTaxas, posicao + 1, taxas.length - posicao - pulo);
+         System.arraycopy(milionesimos, posicao + pulo, novosMilionesimos, posicao + 1, milionesimos.length - posicao - pulo);
+         novosInicios[posicao] = inicio;
+         novasRegras[posicao] = regra;
+         novasTaxas[posicao] = RegistroRegras.taxasDe(regra);
+         novosMilionesimos[posicao] = RegistroRegras.milionesimosDe(regra);
+         return new HistoricoRegras(novosInicios, novasRegras, novasTaxas, novosMilionesimos);
+     }
+ 
+     // Índice da versão vigente no dia, ou -1 se o dia é anterior à primeira versão
+     int versaoEm(long diaEpoca) {
+         int posicao = Arrays.binarySearch(inicios, diaEpoca);
+         return posicao >= 0 ? posicao : -posicao - 2;
+     }
+ }
+ 
+ // ✅ Foto imutável das regras: nunca é alterada depois de publicada, então pode ser lida sem locks
+ final class RegistroRegras {
+     static final RegistroRegras VAZIO = new RegistroRegras(Map.of(), new RegraDeImposto[0], new double[0][], new long[0][],
+             new HistoricoRegras[0]);
+ 
+     final Map<String, Integer> idsPaises;
+     final RegraDeImposto[] regras; // regra sem data; só é usada enquanto o país não tem histórico
+     final double[][] taxas; // linha nula = regra não tabelada (ex.: lambda); veja taxasDe
+     final long[][] milionesimos; // as mesmas linhas em milionésimos, para o caminho em centavos
+     final HistoricoRegras[] historicos; // nulo = país sem versões datadas
+ 
+     private RegistroRegras(Map<String, Integer> idsPaises, RegraDeImposto[] regras, double[][] taxas, long[][] milionesimos,
+             HistoricoRegras[] historicos) {
+         this.idsPaises = idsPaises;
+         this.regras = regras;
+         this.taxas = taxas;
+         this.milionesimos = milionesimos;
+         this.historicos = historicos;
+     }
+ 
+     // ✅ Copy-on-write: devolve uma nova foto com a regra incluída ou substituída
+     // Se o país já tem versões datadas, a regra sem data entra como versão vigente a partir de hoje
+     RegistroRegras comRegra(String pais, RegraDeImposto regra, long hoje) {
+         RegistroRegras base = comPais(pais);
+         int id = base.idsPaises.get(pais);
+         if (base.historicos[id] != null) {
+             base.historicos[id] = base.historicos[id].comVersao(hoje, regra);
+             return base;
+         }
+         base.regras[id] = regra;
+         base.taxas[id] = taxasDe(regra);
+         base.milionesimos[id] = milionesimosDe(regra);
+         return base;
+     }
+ 
+     // ✅ Copy-on-write: devolve uma nova foto com a versão datada incluída no histórico do país
+     // A regra sem data que o país já tinha vira a primeira versão, vigente desde sempre
+     RegistroRegras comVersao(String pais, long inicio, RegraDeImposto regra) {
+         RegistroRegras base = comPais(pais);
+         int id = base.idsPaises.get(pais);
+         HistoricoRegras historico = base.historicos[id];
+         if (historico == null) {
+             historico = new HistoricoRegras(new long[0], new RegraDeImposto[0], new double[0][], new long[0][]);
+             if (base.regras[id] != null) {
+                 historico = historico.comVersao(HistoricoRegras.DESDE_SEMPRE, base.regras[id]);
+             }
+         }
+         base.historicos[id] = historico.comVersao(inicio, regra);
+         return base;
+     }
+
+     // ✅ Copy-on-write: devolve uma nova foto sem as regras do país
+     // O ID continua reservado para o nome, então IDs já resolvidos nunca passam a apontar para outro país
+     RegistroRegras semPais(String pais) {
+         Integer id = idsPaises.get(pais);
+         if (id == null) {
+             return this;
+         }
+         RegistroRegras base = comPais(pais);
+         base.regras[id] = null;
+         base.taxas[id] = null;
+         base.milionesimos[id] = null;
+         base.historicos[id] = null;
+         return base;
+     }
+
+     // País com alguma regra: sem data ou com versões datadas
+     boolean contem(int id) {
+         return id >= 0 && id < regras.length && (regras[id] != null || historicos[id] != null);
+     }
+ 
+     // Cópia com o país garantido; só é alterada antes de ser publicada
+     private RegistroRegras comPais(String pais) {
+         Map<String, Integer> novosIds = new HashMap<>(idsPaises);
+         Integer id = novosIds.get(pais);
+         if (id == null) {
+             id = regras.length;
+             novosIds.put(pais, id);
+         }
+         int tamanho = Math.max(regras.length, id + 1);
+         return new RegistroRegras(novosIds, Arrays.copyOf(regras, tamanho), Arrays.copyOf(taxas, tamanho),
+                 Arrays.copyOf(milionesimos, tamanho), Arrays.copyOf(historicos, tamanho));
+     }
+
+     // Linhas calculadas uma vez na publicação; nulas para regras que não são tabela.
+     // A linha de taxas termina com uma cópia da alíquota de OUTROS: linha[Math.min(id, linha.length - 1)]
+     // atende qualquer ID não negativo sem desvio, inclusive categorias registradas depois da publicação.
+     static double[] taxasDe(RegraDeImposto regra) {
+         if (!(regra instanceof ImpostoTabelado)) {
+             return null;
+         }
+         double[] tabela = ((ImpostoTabelado) regra).tabela();
+         double[] linha = Arrays.copyOf(tabela, tabela.length + 1);
+         linha[tabela.length] = tabela[Categorias.OUTROS];
+         return linha;
+     }
+
+     static long[] milionesimosDe(RegraDeImposto regra) {
+         return regra instanceof ImpostoTabelado ? ((ImpostoTabelado) regra).tabelaMilionesimos() : null;
      }
  }
  
  // ✅ Classe que faz o gerenciamento de impostos de forma aberta para extensão
+ // Países recebem IDs densos; regras tabeladas viram uma linha de double[][] e o caminho
+ // por ID faz só dois acessos a vetor e uma multiplicação, sem hash, boxing ou alocação.
  class CalculadoraImposto {
-     private Map<String, RegraDeImposto> regras = new HashMap<>();
+     // Leitores pegam a foto atual numa única leitura volátil; escritores publicam uma foto nova
+     private volatile RegistroRegras registro = RegistroRegras.VAZIO;
  
      public CalculadoraImposto() {
-         regras.put("brasil", new ImpostoBrasil());
-         regras.put("eua", new ImpostoEUA());
-         regras.put("europa", new ImpostoEuropa());
+         adicionarRegra("brasil", new ImpostoBrasil());
+         adicionarRegra("eua", new ImpostoEUA());
+         adicionarRegra("europa", new ImpostoEuropa());
      }
  
-     public void adicionarRegra(String pais, RegraDeImposto regra) {
-         regras.put(pais.toLowerCase(), regra);
+     // ✅ Pode ser chamado enquanto outras threads calculam: elas seguem na foto anterior até a troca
+     // Num país com versões datadas, a regra passa a valer a partir de hoje (as versões antigas continuam)
+     public synchronized void adicionarRegra(String pais, RegraDeImposto regra) {
+         registro = registro.comRegra(pais.toLowerCase(), regra, hoje());
+     }
+
+     // ✅ Versão que vale a partir de uma data: cálculos com data anterior continuam usando a versão antiga
+     public synchronized void adicionarRegra(String pais, LocalDate vigenteDesde, RegraDeImposto regra) {
+         registro = registro.comVersao(pais.toLowerCase(), vigenteDesde.toEpochDay(), regra);
      }
  
+     // ✅ Troca várias regras numa única publicação: nenhum cálculo vê metade de uma recarga
+     public synchronized void adicionarRegras(Map<String, ? extends RegraDeImposto> novasRegras) {
+         RegistroRegras novo = registro;
+         long hoje = hoje();
+         for (Map.Entry<String, ? extends RegraDeImposto> entrada : novasRegras.entrySet()) {
+             novo = novo.comRegra(entrada.getKey().toLowerCase(), entrada.getValue(), hoje);
+         }
+         registro = novo;
+     }
+
+     // ✅ Remove e troca regras numa única publicação (ex.: recarga de arquivo em que um país saiu)
+     public synchronized void trocarRegras(Collection<String> removidos, Map<String, ? extends RegraDeImposto> novasRegras) {
+         RegistroRegras novo = registro;
+         for (String pais : removidos) {
+             novo = novo.semPais(pais.toLowerCase());
+         }
+         long hoje = hoje();
+         for (Map.Entry<String, ? extends RegraDeImposto> entrada : novasRegras.entrySet()) {
+             novo = novo.comRegra(entrada.getKey().toLowerCase(), entrada.getValue(), hoje);
+         }
+         registro = novo;
+     }
+ 
+     // ✅ Resolve o ID do país uma vez; só converte para minúsculas se o nome não vier normalizado
+     public int idPais(String pais) {
+         return idPais(registro, pais);
+     }
+ 
+     private static int idPais(RegistroRegras registro, String pais) {
+         Integer id = registro.idsPaises.get(pais);
+         if (id == null) {
+             id = registro.idsPaises.get(pais.toLowerCase());
+         }
+         if (id == null || !registro.contem(id)) {
+             throw new IllegalArgumentException("❌ País não suportado!");
+         }
+         return id;
+     }
+ 
+     // ✅ Sem data: num país com versões datadas, vale a versão vigente hoje
      public double calcularImposto(String pais, String categoria, double preco) {
-         RegraDeImposto regra = regras.get(pais.toLowerCase());
-         if (regra == null) {
+         RegistroRegras atual = registro;
+         int id = idPais(atual, pais);
+         HistoricoRegras historico = atual.historicos[id];
+         return calcularPorNome(atual, id, historico == null ? -1 : versaoVigente(historico, hoje()), categoria, preco);
+     }
+ 
+     // ✅ Imposto pela versão da regra vigente na data (ex.: data da nota fiscal)
+     public double calcularImposto(String pais, String categoria, double preco, LocalDate data) {
+         RegistroRegras atual = registro;
+         int id = idPais(atual, pais);
+         HistoricoRegras historico = atual.historicos[id];
+         return calcularPorNome(atual, id, historico == null ? -1 : versaoVigente(historico, data.toEpochDay()), categoria, preco);
+     }
+
+     // Versão -1 = país sem histórico (regra sem data); o nome da categoria chega intacto às regras que não são tabela
+     private static double calcularPorNome(RegistroRegras atual, int pais, int versao, String categoria, double preco) {
+         HistoricoRegras historico = atual.historicos[pais];
+         double[] linha = versao < 0 ? atual.taxas[pais] : historico.taxas[versao];
+         if (linha == null) {
+             return (versao < 0 ? atual.regras[pais] : historico.regras[versao]).calcular(categoria, preco);
+         }
+         return preco * taxa(linha, Categorias.id(categoria));
+     }
+ 
+     // ✅ Caminho rápido por IDs (de idPais e Categorias.id): não aloca nada
+     public double calcularImposto(int pais, int categoria, double preco) {
+         RegistroRegras atual = registro;
+         if (!atual.contem(pais)) {
+             throw new IllegalArgumentException("❌ País não suportado!");
+         }
+         HistoricoRegras historico = atual.historicos[pais];
+         return historico == null ? calcular(atual, pais, categoria, preco)
+                 : calcular(historico, versaoVigente(historico, hoje()), categoria, preco);
+     }
+ 
+     // ✅ Caminho rápido datado: busca binária no vetor de dias de início das versões, sem alocação
+     public double calcularImposto(int pais, int categoria, double preco, long diaEpoca) {
+         RegistroRegras atual = registro;
+         if (!atual.contem(pais)) {
+             throw new IllegalArgumentException("❌ País não suportado!");
+         }
+         HistoricoRegras historico = atual.historicos[pais];
+         return historico == null ? calcular(atual, pais, categoria, preco)
+                 : calcular(historico, versaoVigente(historico, diaEpoca), categoria, preco);
+     }
+ 
+     /**
+      * Imposto em centavos sobre um preço em centavos (veja Dinheiro).
+      * Regras tabeladas multiplicam o long direto pela alíquota em milionésimos (linha montada na
+      * publicação) e arredondam uma única vez (HALF_EVEN); só regras que não são tabela passam por
+      * reais em double.
+      */
+     public long calcularImpostoEmCentavos(String pais, String categoria, long precoCentavos) {
+         RegistroRegras atual = registro;
+         int id = idPais(atual, pais);
+         HistoricoRegras historico = atual.historicos[id];
+         int versao = historico == null ? -1 : versaoVigente(historico, hoje());
+         long[] fatores = versao < 0 ? atual.milionesimos[id] : historico.milionesimos[versao];
+         if (fatores == null) {
+             RegraDeImposto regra = versao < 0 ? atual.regras[id] : historico.regras[versao];
+             return Dinheiro.deReais(regra.calcular(categoria, precoCentavos / 100.0));
+         }
+         return Dinheiro.multiplicarPorMilionesimos(precoCentavos, fator(fatores, Categorias.id(categoria)), RoundingMode.HALF_EVEN);
+     }
+
+     // ✅ Caminho rápido por IDs em centavos: não aloca nada
+     public long calcularImpostoEmCentavos(int pais, int categoria, long precoCentavos) {
+         RegistroRegras atual = registro;
+         if (!atual.contem(pais)) {
+             throw new IllegalArgumentException("❌ País não suportado!");
+         }
+         HistoricoRegras historico = atual.historicos[pais];
+         int versao = historico == null ? -1 : versaoVigente(historico, hoje());
+         long[] fatores = versao < 0 ? atual.milionesimos[pais] : historico.milionesimos[versao];
+         if (fatores == null) {
+             RegraDeImposto regra = versao < 0 ? atual.regras[pais] : historico.regras[versao];
+             return Dinheiro.deReais(regra.calcular(Categorias.nome(categoria), precoCentavos / 100.0));
+         }
+         return Dinheiro.multiplicarPorMilionesimos(precoCentavos, fator(fatores, categoria), RoundingMode.HALF_EVEN);
+     }
+
+     /**
+      * Recalcula em lote itens com datas diferentes (ex.: notas de vários anos).
+      * Com as datas em ordem, a versão do item anterior quase sempre serve e a busca binária é evitada.
+      */
+     public void calcularImpostoLote(int pais, int[] categorias, double[] precos, long[] diasEpoca, double[] saida) {
+         if (categorias.length != precos.length || diasEpoca.length != precos.length || saida.length < precos.length) {
+             throw new IllegalArgumentException("❌ Tamanhos de lote incompatíveis!");
+         }
+         RegistroRegras atual = registro;
+         if (!atual.contem(pais)) {
+             throw new IllegalArgumentException("❌ País não suportado!");
+         }
+         HistoricoRegras historico = atual.historicos[pais];
+         if (historico == null) {
+             calcularImpostoLote(pais, categorias, precos, saida);
+             return;
+         }
+         long[] inicios = historico.inicios;
+         int versao = -1;
+         long inicioVersao = Long.MAX_VALUE;
+         long fimVersao = Long.MIN_VALUE; // exclusivo
+         for (int i = 0; i < precos.length; i++) {
+             long dia = diasEpoca[i];
+             if (dia < inicioVersao || dia >= fimVersao) {
+                 versao = versaoVigente(historico, dia);
+                 inicioVersao = inicios[versao];
+                 fimVersao = versao + 1 < inicios.length ? inicios[versao + 1] : Long.MAX_VALUE;
+             }
+             saida[i] = calcular(historico, versao, categorias[i], precos[i]);
+         }
+     }
+ 
+     public double calcularImpostoCarrinho(int pais, int[] categorias, double[] precos) {
+         return calcularImpostoCarrinho(pais, categorias, precos, ForkJoinPool.commonPool());
+     }
+ 
+     /**
+      * Soma o imposto de um carrinho grande dividindo as linhas entre as threads do pool.
+      * As linhas são cortadas em blocos de tamanho fixo e somadas com compensação de Neumaier;
+      * os blocos são combinados sempre na mesma ordem, então o total é idêntico bit a bit
+      * com 1 ou N threads. Em regras tabeladas, cada bloco agrupa os preços por categoria e a
+      * alíquota é aplicada uma vez por categoria, no final.
+      */
+     public double calcularImpostoCarrinho(int pais, int[] categorias, double[] precos, ForkJoinPool pool) {
+         if (categorias.length != precos.length) {
+             throw new IllegalArgumentException("❌ Tamanhos de carrinho incompatíveis!");
+         }
+         RegistroRegras atual = registro;
+         if (!atual.contem(pais)) {
+             throw new IllegalArgumentException("❌ País não suportado!");
+         }
+         HistoricoRegras historico = atual.historicos[pais];
+         int versao = historico == null ? -1 : versaoVigente(historico, hoje());
+         double[] linha = versao < 0 ? atual.taxas[pais] : historico.taxas[versao];
+         RegraDeImposto regra = versao < 0 ? atual.regras[pais] : historico.regras[versao];
+         boolean agrupar = linha != null && linha.length <= TarefaCarrinho.MAX_GRUPOS;
+         int grupos = agrupar ? linha.length : 1;
+         int blocos = (precos.length + TarefaCarrinho.TAMANHO_BLOCO - 1) / TarefaCarrinho.TAMANHO_BLOCO;
+         double[] somas = new double[blocos * grupos];
+         double[] compensacoes = new double[blocos * grupos];
+         pool.invoke(new TarefaCarrinho(linha, regra, categorias, precos, agrupar, grupos, somas, compensacoes, 0, blocos));
+ 
+         double[] total = new double[2];
+         for (int g = 0; g < grupos; g++) {
+             double[] grupo = new double[2];
+             for (int b = 0; b < blocos; b++) {
+                 somarNeumaier(grupo, somas[b * grupos + g]);
+                 somarNeumaier(grupo, compensacoes[b * grupos + g]);
+             }
+             double subtotal = grupo[0] + grupo[1];
+             somarNeumaier(total, agrupar ? subtotal * linha[g] : subtotal);
+         }
+         return total[0] + total[1];
+     }
+ 
+     // Um OU dos IDs tem o bit de sinal ligado se algum for negativo: laço sem desvio nem dependência longa
+     private static void validarCategorias(int[] categorias, int inicio, int fim) {
+         int bits = 0;
+         for (int i = inicio; i < fim; i++) {
+             bits |= categorias[i];
+         }
+         if (bits < 0) {
+             for (int i = inicio; i < fim; i++) {
+                 Categorias.validar(categorias[i]); // só para achar o ID e montar a mensagem
+             }
+         }
+     }
+
+     // Soma compensada de Neumaier: acumulado[0] = soma, acumulado[1] = erro de arredondamento acumulado
+     static void somarNeumaier(double[] acumulado, double valor) {
+         double soma = acumulado[0];
+         double nova = soma + valor;
+         if (Math.abs(soma) >= Math.abs(valor)) {
+             acumulado[1] += (soma - nova) + valor;
+         } else {
+             acumulado[1] += (valor - nova) + soma;
+         }
+         acumulado[0] = nova;
+     }
+ 
+     // Divide o intervalo de blocos ao meio até sobrar um bloco; cada bloco grava só nas suas posições
+     private static final class TarefaCarrinho extends RecursiveAction {
+         private static final long serialVersionUID = 1L;
+         static final int TAMANHO_BLOCO = 4096;
+         static final int MAX_GRUPOS = 256;
+ 
+         private final double[] linha; // nula = regra não tabelada
+         private final RegraDeImposto regra;
+         private final int[] categorias;
+         private final double[] precos;
+         private final boolean agrupar;
+         private final int grupos;
+         private final double[] somas;
+         private final double[] compensacoes;
+         private final int primeiroBloco;
+         private final int fimBlocos;
+ 
+         TarefaCarrinho(double[] linha, RegraDeImposto regra, int[] categorias, double[] precos, boolean agrupar, int grupos,
+                 double[] somas, double[] compensacoes, int primeiroBloco, int fimBlocos) {
+             this.linha = linha;
+             this.regra = regra;
+             this.categorias = categorias;
+             this.precos = precos;
+             this.agrupar = agrupar;
+             this.grupos = grupos;
+             this.somas = somas;
+             this.compensacoes = compensacoes;
+             this.primeiroBloco = primeiroBloco;
+             this.fimBlocos = fimBlocos;
+         }
+ 
+         @Override
+         protected void compute() {
+             if (fimBlocos - primeiroBloco > 1) {
+                 int meio = (primeiroBloco + fimBlocos) >>> 1;
+                 invokeAll(new TarefaCarrinho(linha, regra, categorias, precos, agrupar, grupos, somas, compensacoes, primeiroBloco, meio),
+                         new TarefaCarrinho(linha, regra, categorias, precos, agrupar, grupos, somas, compensacoes, meio, fimBlocos));
+                 return;
+             }
+             if (fimBlocos == primeiroBloco) {
+                 return;
+             }
+             int inicio = primeiroBloco * TAMANHO_BLOCO;
+             int fim = Math.min(inicio + TAMANHO_BLOCO, precos.length);
+             // Um ID negativo somaria no grupo de outro bloco sem erro nenhum: o bloco é recusado antes
+             validarCategorias(categorias, inicio, fim);
+             int base = primeiroBloco * grupos;
+             double[] acumulado = new double[2];
+             if (!agrupar) {
+                 for (int i = inicio; i < fim; i++) {
+                     double imposto = linha == null ? regra.calcular(Categorias.nome(categorias[i]), precos[i])
+                             : precos[i] * taxa(linha, categorias[i]);
+                     somarNeumaier(acumulado, imposto);
+                 }
+                 somas[base] = acumulado[0];
+                 compensacoes[base] = acumulado[1];
+                 return;
+             }
+             for (int i = inicio; i < fim; i++) {
+                 int grupo = categorias[i] < grupos ? categorias[i] : Categorias.OUTROS;
+                 acumulado[0] = somas[base + grupo];
+                 acumulado[1] = compensacoes[base + grupo];
+                 somarNeumaier(acumulado, precos[i]);
+                 somas[base + grupo] = acumulado[0];
+                 compensacoes[base + grupo] = acumulado[1];
+             }
+         }
+     }
+ 
+     private static double calcular(RegistroRegras atual, int pais, int categoria, double preco) {
+         double[] linha = atual.taxas[pais];
+         if (linha == null) {
+             return atual.regras[pais].calcular(Categorias.nome(categoria), preco);
+         }
+         return preco * taxa(linha, categoria);
+     }
+ 
+     private static double calcular(HistoricoRegras historico, int versao, int categoria, double preco) {
+         double[] linha = historico.taxas[versao];
+         if (linha == null) {
+             return historico.regras[versao].calcular(Categorias.nome(categoria), preco);
+         }
+         return preco * taxa(linha, categoria);
+     }
+ 
+     // Índice da versão vigente no dia; antes da primeira versão o país não tem regra para aplicar
+     private static int versaoVigente(HistoricoRegras historico, long diaEpoca) {
+         int versao = historico.versaoEm(diaEpoca);
+         if (versao < 0) {
+             throw new IllegalArgumentException("❌ Nenhuma regra vigente na data do cálculo!");
+         }
+         return versao;
+     }
+
+     // Dia corrente (dias desde 1970) e o intervalo em milissegundos em que ele vale, no fuso padrão
+     private static final class Dia {
+         final long epochDay;
+         final long inicioMillis;
+         final long fimMillis;
+
+         Dia(long epochDay, long inicioMillis, long fimMillis) {
+             this.epochDay = epochDay;
+             this.inicioMillis = inicioMillis;
+             this.fimMillis = fimMillis;
+         }
+     }
+
+     private static volatile Dia diaAtual = new Dia(0, 0, 0);
+
+     // Chamado em todo cálculo sem data: custa um currentTimeMillis() e uma comparação.
+     // LocalDate.now() (fuso, calendário e alocação) só roda na virada do dia ou se o relógio voltar.
+     private static long hoje() {
+         Dia dia = diaAtual;
+         long agora = System.currentTimeMillis();
+         if (agora >= dia.fimMillis || agora < dia.inicioMillis) {
+             dia = calcularDia();
+         }
+         return dia.epochDay;
+     }
+
+     private static Dia calcularDia() {
+         ZoneId zona = ZoneId.systemDefault();
+         LocalDate data = LocalDate.now(zona);
+         Dia dia = new Dia(data.toEpochDay(), data.atStartOfDay(zona).toInstant().toEpochMilli(),
+                 data.plusDays(1).atStartOfDay(zona).toInstant().toEpochMilli());
+         diaAtual = dia;
+         return dia;
+     }
+ 
+     /**
+      * Calcula o imposto de muitos itens do mesmo país de uma vez, escrevendo em saida[i].
+      * A linha de alíquotas do país (montada na publicação, com OUTROS repetida na última posição)
+      * é resolvida uma única vez. Os IDs são conferidos antes de qualquer escrita (nenhum negativo),
+      * e o laço não tem desvio: o ID é limitado com Math.min (IDs sem alíquota própria caem na
+      * última posição) e a alíquota sai direto do vetor. A leitura indexada pela categoria continua
+      * escalar no C2 (não há gather); o ganho sobre item a item vem de resolver país, versão e
+      * linha uma vez só (veja LoteImpostoBenchmark).
+      */
+     public void calcularImpostoLote(int pais, int[] categorias, double[] precos, double[] saida) {
+         if (categorias.length != precos.length || saida.length < precos.length) {
+             throw new IllegalArgumentException("❌ Tamanhos de lote incompatíveis!");
+         }
+         RegistroRegras atual = registro;
+         if (!atual.contem(pais)) {
              throw new IllegalArgumentException("❌ País não suportado!");
          }
-         return regra.calcular(categoria, preco);
+         HistoricoRegras historico = atual.historicos[pais];
+         int versao = historico == null ? -1 : versaoVigente(historico, hoje());
+         double[] linha = versao < 0 ? atual.taxas[pais] : historico.taxas[versao];
+         RegraDeImposto regra = versao < 0 ? atual.regras[pais] : historico.regras[versao];
+         int n = precos.length;
+         if (linha == null) {
+             for (int i = 0; i < n; i++) {
+                 saida[i] = regra.calcular(Categorias.nome(categorias[i]), precos[i]);
+             }
+             return;
+         }
+         validarCategorias(categorias, 0, n);
+         int ultima = linha.length - 1;
+         for (int i = 0; i < n; i++) {
+             saida[i] = precos[i] * linha[Math.min(categorias[i], ultima)];
+         }
+     }
+ 
+     private static double taxa(double[] linha, int categoria) {
+         Categorias.validar(categoria);
+         return categoria < linha.length ? linha[categoria] : linha[Categorias.OUTROS];
+     }
+
+     private static long fator(long[] linha, int categoria) {
+         Categorias.validar(categoria);
+         return categoria < linha.length ? linha[categoria] : linha[Categorias.OUTROS];
      }
  }
  
@@ -113,5 +1674,57 @@
 //          // ✅ Adicionando um novo país SEM modificar a classe CalculadoraImposto!
 //          calculadora.adicionarRegra("japão", (categoria, preco) -> preco * 0.35);
 //          System.out.println("🇯🇵 Imposto Japão: R$ " + calculadora.calcularImposto("japão", "eletronico", 1000));
+
+//          // ✅ Caminho rápido: IDs resolvidos uma vez, cálculo sem hash nem alocação
+//          int brasil = calculadora.idPais("brasil");
+//          System.out.println("🇧🇷 Imposto Brasil (por ID): R$ " + calculadora.calcularImposto(brasil, Categorias.LIVRO, 80));
+
+//          // ✅ Valores em centavos: sem erro de arredondamento binário no resultado
+//          long impostoCentavos = calculadora.calcularImpostoEmCentavos("brasil", "eletronico", Dinheiro.deReais(1999.90));
+//          System.out.println("💰 Imposto Brasil em centavos: " + Dinheiro.formatar(impostoCentavos));
+//
+//          // ✅ Lote: vários itens do mesmo país numa única chamada
+//          double[] impostos = new double[3];
+//          calculadora.calcularImpostoLote(brasil, new int[] { Categorias.LIVRO, Categorias.ALIMENTO, Categorias.OUTROS },
+//                  new double[] { 80, 20, 500 }, impostos);
+//          System.out.println("🧾 Impostos do lote: " + Arrays.toString(impostos));
+
+//          // ✅ Imposto progressivo: 0% até 1.000, 10% de 1.000 a 5.000 e 25% acima de 5.000
+//          FaixasProgressivas faixas = new FaixasProgressivas(new double[] { 0, 1_000, 5_000 }, new double[] { 0, 0.10, 0.25 });
+//          calculadora.adicionarRegra("progressiva", new ImpostoProgressivo(faixas, Map.of()));
+//          System.out.println("📶 Imposto progressivo: R$ " + calculadora.calcularImposto("progressiva", "eletronico", 8_000));
+ 
+//          // ✅ Versões com data de vigência: notas antigas usam a alíquota da época
+//          calculadora.adicionarRegra("brasil", LocalDate.of(2020, 1, 1), new ImpostoBrasil());
+//          calculadora.adicionarRegra("brasil", LocalDate.of(2024, 1, 1), (categoria, preco) -> preco * 0.18);
+//          System.out.println("📅 Imposto em 2021: R$ " + calculadora.calcularImposto("brasil", "livro", 100, LocalDate.of(2021, 6, 1)));
+//          System.out.println("📅 Imposto em 2024: R$ " + calculadora.calcularImposto("brasil", "livro", 100, LocalDate.of(2024, 6, 1)));
+//          System.out.println("📅 Imposto sem data (versão vigente hoje): R$ " + calculadora.calcularImposto("brasil", "livro", 100));
+ 
+//          // ✅ Camadas de impostos fundidas numa só tabela (uma consulta por item)
+//          ImpostoComposto empilhado = ImpostoComposto.construtor()
+//                  .somar(new ImpostoEUA())
+//                  .emCascata(new ImpostoCarregado(0.02, new String[] { "eletronico" }, new double[] { 0.05 }))
+//                  .construir();
+//          calculadora.adicionarRegra("eua-ny", empilhado);
+//          System.out.println("🗽 Imposto EUA + Nova York: R$ " + calculadora.calcularImposto("eua-ny", "eletronico", 1000));
+ 
+//          // ✅ Carrinho grande: soma paralela e determinística (mesmo total com qualquer número de threads)
+//          int linhas = 300_000;
+//          int[] categoriasCarrinho = new int[linhas];
+//          double[] precosCarrinho = new double[linhas];
+//          for (int i = 0; i < linhas; i++) {
+//              categoriasCarrinho[i] = i % Categorias.quantidade();
+//              precosCarrinho[i] = 9.99 + i % 100;
+//          }
+//          System.out.println("🛒 Imposto do carrinho: R$ " + calculadora.calcularImpostoCarrinho(brasil, categoriasCarrinho, precosCarrinho));
+ 
+//          // ✅ Tabelas em arquivo binário, recarregadas automaticamente quando o arquivo muda
+//          Path tabelas = Path.of("impostos.bin");
+//          ArquivoTabelaImpostos.escrever(tabelas, 1, Map.of("brasil", new ImpostoBrasil()));
+//          try (RecarregadorImpostos recarregador = new RecarregadorImpostos(calculadora, tabelas)) {
+//              ArquivoTabelaImpostos.escrever(tabelas, 2, Map.of("brasil",
+//                      new ImpostoCarregado(0.15, new String[] { "livro" }, new double[] { 0.0 })));
+//          }
 //      }
 //  } 
\ No newline at end of file
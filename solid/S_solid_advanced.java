@@ -28,77 +28,1811 @@
  *    - O sistema perderia flexibilidade, dificultando **adicionar novas funcionalidades** sem afetar as existentes.
  */
 
+ import java.io.IOException;
+ import java.io.PrintStream;
+ import java.io.UncheckedIOException;
+ import java.math.RoundingMode;
+ import java.nio.ByteBuffer;
+ import java.nio.ByteOrder;
+ import java.nio.MappedByteBuffer;
+ import java.nio.channels.FileChannel;
+ import java.nio.charset.StandardCharsets;
+ import java.nio.file.Files;
+ import java.nio.file.Path;
+ import java.nio.file.StandardCopyOption;
+ import java.nio.file.StandardOpenOption;
+ import java.time.LocalDate;
+ import java.time.LocalDateTime;
+ import java.time.ZoneOffset;
+ import java.time.format.DateTimeFormatter;
+ import java.time.format.DateTimeParseException;
+ import java.time.format.ResolverStyle;
+ import java.util.AbstractList;
  import java.util.ArrayList;
+ import java.util.Arrays;
+ import java.util.Collections;
+ import java.util.Comparator;
+ import java.util.HashMap;
  import java.util.List;
+ import java.util.Map;
+ import java.util.NavigableSet;
+ import java.util.TreeMap;
+ import java.util.TreeSet;
+ import java.util.concurrent.Executors;
+ import java.util.concurrent.ScheduledExecutorService;
+ import java.util.concurrent.TimeUnit;
+ import java.util.concurrent.atomic.AtomicIntegerArray;
+ import java.util.concurrent.atomic.AtomicLong;
+ import java.util.concurrent.atomic.AtomicReferenceArray;
+ import java.util.concurrent.atomic.LongAdder;
+ import java.util.concurrent.locks.LockSupport;
+ import java.util.function.Consumer;
+ import java.util.stream.Collectors;
+ import java.util.stream.Stream;
+ import java.util.zip.CRC32C;
+ 
+ // ✅ DINHEIRO EM PONTO FIXO: valores são long em centavos, sem erro de arredondamento binário
+ // Tudo é aritmética estática sobre long, então nada é alocado nem encaixotado. Fatores (ex.:
+ // alíquotas) viram milionésimos inteiros e a multiplicação é feita em 128 bits, com uma única
+ // etapa de arredondamento; um resultado fora do long lança ArithmeticException em vez de saturar.
+ final class Dinheiro {
+     public static final long ESCALA_FATOR = 1_000_000; // fatores com até 6 casas decimais são exatos
+     private static final double LIMITE_CENTAVOS = 0x1p63;
+ 
+     private Dinheiro() {
+     }
+ 
+     // Arredonda para centavos pelo valor decimal que o double representa (0.1 vira 10 centavos e
+     // 2.675 vira 268, como em BigDecimal.valueOf): a diferença de até 2 ulps entre o double e o
+     // meio centavo conta como empate, resolvido com HALF_EVEN.
+     public static long deReais(double reais) {
+         if (Double.isNaN(reais) || Double.isInfinite(reais)) {
+             throw new NumberFormatException("❌ Valor não numérico: " + reais);
+         }
+         double emCentavos = reais * 100;
+         double piso = Math.floor(emCentavos);
+         double fracao = emCentavos - piso;
+         double arredondado;
+         if (Math.abs(fracao - 0.5) <= 2 * Math.ulp(emCentavos)) {
+             arredondado = piso % 2 == 0 ? piso : piso + 1;
+         } else {
+             arredondado = fracao < 0.5 ? piso : piso + 1;
+         }
+         if (arredondado >= LIMITE_CENTAVOS || arredondado < -LIMITE_CENTAVOS) {
+             throw new ArithmeticException("❌ Valor fora do intervalo de centavos: " + reais);
+         }
+         return (long) arredondado;
+     }
+ 
+     // Fator decimal em milionésimos inteiros (0.15 vira 150000); casas além da sexta são arredondadas
+     public static long fatorEmMilionesimos(double fator) {
+         double escalado = Math.rint(fator * ESCALA_FATOR);
+         if (Double.isNaN(escalado) || escalado >= LIMITE_CENTAVOS || escalado < -LIMITE_CENTAVOS) {
+             throw new ArithmeticException("❌ Fator fora do intervalo: " + fator);
+         }
+         return (long) escalado;
+     }
+ 
+     public static long somar(long centavos, long outros) {
+         return Math.addExact(centavos, outros);
+     }
+ 
+     public static long subtrair(long centavos, long outros) {
+         return Math.subtractExact(centavos, outros);
+     }
+ 
+     // Quantidade inteira (ex.: 3 unidades) sem passar por double
+     public static long multiplicar(long centavos, long quantidade) {
+         return Math.multiplyExact(centavos, quantidade);
+     }
+ 
+     // ✅ Multiplica por um fator (ex.: alíquota) com uma única etapa de arredondamento
+     public static long multiplicar(long centavos, double fator, RoundingMode modo) {
+         return multiplicarPorMilionesimos(centavos, fatorEmMilionesimos(fator), modo);
+     }
+
+     // Produto exato dividido por ESCALA_FATOR; o resto da divisão decide o arredondamento
+     public static long multiplicarPorMilionesimos(long centavos, long milionesimos, RoundingMode modo) {
+         if (modo == RoundingMode.HALF_EVEN) {
+             return multiplicarMeioPar(centavos, milionesimos);
+         }
+         return multiplicarEm128Bits(centavos, milionesimos, modo);
+     }
+
+     // Caso geral: qualquer modo de arredondamento, produto em 128 bits sem sinal
+     private static long multiplicarEm128Bits(long centavos, long milionesimos, RoundingMode modo) {
+         boolean negativo = (centavos < 0) != (milionesimos < 0);
+         // Math.abs(Long.MIN_VALUE) continua negativo, mas lido sem sinal é exatamente 2^63
+         long a = Math.abs(centavos);
+         long b = Math.abs(milionesimos);
+         long baixo = a * b;
+         long alto = Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+         long quociente;
+         long resto;
+         if (alto == 0 && baixo >= 0) {
+             // Caso comum (preços e alíquotas reais): o produto cabe em 63 bits, uma divisão basta
+             quociente = baixo / ESCALA_FATOR;
+             resto = baixo - quociente * ESCALA_FATOR;
+         } else {
+             if (Long.compareUnsigned(alto, ESCALA_FATOR) >= 0) {
+                 throw new ArithmeticException("❌ Resultado fora do intervalo de centavos");
+             }
+             // Divisão longa em duas metades de 32 bits: o resto sempre cabe antes do deslocamento
+             long parcial = (alto << 32) | (baixo >>> 32);
+             long quocienteAlto = parcial / ESCALA_FATOR;
+             parcial = ((parcial % ESCALA_FATOR) << 32) | (baixo & 0xFFFFFFFFL);
+             quociente = (quocienteAlto << 32) + parcial / ESCALA_FATOR;
+             resto = parcial % ESCALA_FATOR;
+         }
+         if (quociente >= 0 && resto != 0 && arredondaParaCima(modo, resto, quociente, negativo)) {
+             quociente++;
+         }
+         // Magnitudes a partir de 2^63 (lidas com sinal, ficam negativas) não cabem no long
+         if (quociente < 0) {
+             throw new ArithmeticException("❌ Resultado fora do intervalo de centavos");
+         }
+         return negativo ? -quociente : quociente;
+     }
+
+     // ✅ Caso mais usado (impostos): produto que cabe no long, uma divisão por constante e o desempate no par
+     private static long multiplicarMeioPar(long centavos, long milionesimos) {
+         long produto = centavos * milionesimos;
+         if (Math.multiplyHigh(centavos, milionesimos) != (produto >> 63)) {
+             return multiplicarEm128Bits(centavos, milionesimos, RoundingMode.HALF_EVEN);
+         }
+         long quociente = produto / ESCALA_FATOR; // trunca em direção a zero: o resto tem o sinal do produto
+         long resto = Math.abs(produto - quociente * ESCALA_FATOR);
+         long meio = ESCALA_FATOR / 2;
+         if (resto > meio || (resto == meio && (quociente & 1) != 0)) {
+             quociente += produto < 0 ? -1 : 1;
+         }
+         return quociente;
+     }
+
+     // Decide se a magnitude truncada sobe um centavo (resto > 0, meio = ESCALA_FATOR / 2)
+     private static boolean arredondaParaCima(RoundingMode modo, long resto, long quociente, boolean negativo) {
+         long meio = ESCALA_FATOR / 2;
+         switch (modo) {
+             case UP:
+                 return true;
+             case DOWN:
+                 return false;
+             case CEILING:
+                 return !negativo;
+             case FLOOR:
+                 return negativo;
+             case HALF_UP:
+                 return resto >= meio;
+             case HALF_DOWN:
+                 return resto > meio;
+             case HALF_EVEN:
+                 return resto > meio || (resto == meio && (quociente & 1) != 0);
+             default:
+                 throw new ArithmeticException("❌ Arredondamento necessário");
+         }
+     }
+ 
+     // Escreve "R$ 1234,56" direto no destino, sem criar Strings intermediárias
+     public static void formatar(long centavos, StringBuilder destino) {
+         // Divide antes de trocar o sinal: -Long.MIN_VALUE estouraria, mas o quociente e o resto não
+         long reais = Math.abs(centavos / 100);
+         long resto = Math.abs(centavos % 100);
+         if (centavos < 0) {
+             destino.append('-');
+         }
+         destino.append("R$ ").append(reais).append(',');
+         if (resto < 10) {
+             destino.append('0');
+         }
+         destino.append(resto);
+     }
+ 
+     public static String formatar(long centavos) {
+         StringBuilder texto = new StringBuilder(24);
+         formatar(centavos, texto);
+         return texto.toString();
+     }
+ }
+ 
+ // ✅ NÍVEIS DE LOG (do mais detalhado ao mais grave)
+ enum NivelLog {
+     DEBUG, INFO, AVISO, ERRO
+ }
+ 
+ // ✅ EVENTO DE LOG PRÉ-ALOCADO (um rascunho reutilizado por thread; argumentos primitivos não viram objetos)
+ // Uso: Log.info("Pagamento de R$ {} para {}").com(valor).com(nome).publicar();
+ // A posição no anel só é reservada dentro de publicar(): um evento abandonado (exceção ao calcular
+ // um argumento, publicar() esquecido) não deixa buraco no anel nem trava a thread de escrita.
+ class EventoLog {
+     static final EventoLog DESCARTADO = new EventoLog(null);
+     private static final int MAX_ARGUMENTOS = 4;
+     private static final byte TEXTO = 0;
+     private static final byte DECIMAL = 1;
+     private static final byte INTEIRO = 2;
+     private static final byte DINHEIRO = 3;
+ 
+     private final RegistroAssincrono destino; // null: evento descartado ou posição do anel
+     private final String[] textos = new String[MAX_ARGUMENTOS];
+     private final long[] valores = new long[MAX_ARGUMENTOS];
+     private final byte[] tipos = new byte[MAX_ARGUMENTOS];
+     private String modelo;
+     private int argumentos;
+     private volatile long publicado = -1;
+     boolean emUso;
+ 
+     EventoLog(RegistroAssincrono destino) {
+         this.destino = destino;
+     }
+ 
+     void preparar(String modelo) {
+         this.modelo = modelo;
+         this.argumentos = 0;
+         this.emUso = true;
+     }
+ 
+     public EventoLog com(String texto) {
+         if (destino != null && argumentos < MAX_ARGUMENTOS) {
+             tipos[argumentos] = TEXTO;
+             textos[argumentos++] = texto;
+         }
+         return this;
+     }
+ 
+     public EventoLog com(double valor) {
+         if (destino != null && argumentos < MAX_ARGUMENTOS) {
+             tipos[argumentos] = DECIMAL;
+             valores[argumentos++] = Double.doubleToRawLongBits(valor);
+         }
+         return this;
+     }
+ 
+     public EventoLog com(long valor) {
+         if (destino != null && argumentos < MAX_ARGUMENTOS) {
+             tipos[argumentos] = INTEIRO;
+             valores[argumentos++] = valor;
+         }
+         return this;
+     }
+ 
+     // Valor em centavos, escrito como "R$ 12,34"
+     public EventoLog comDinheiro(long centavos) {
+         if (destino != null && argumentos < MAX_ARGUMENTOS) {
+             tipos[argumentos] = DINHEIRO;
+             valores[argumentos++] = centavos;
+         }
+         return this;
+     }
+ 
+     // ✅ Obrigatório: entrega o evento à thread de escrita (chamadas repetidas são ignoradas)
+     public void publicar() {
+         if (destino != null && emUso) {
+             emUso = false;
+             destino.publicar(this);
+             Arrays.fill(textos, 0, argumentos, null);
+         }
+     }
+ 
+     // Copia o rascunho para a posição reservada do anel e a libera para a escrita
+     void copiarDe(EventoLog rascunho, long sequencia) {
+         modelo = rascunho.modelo;
+         argumentos = rascunho.argumentos;
+         System.arraycopy(rascunho.textos, 0, textos, 0, argumentos);
+         System.arraycopy(rascunho.valores, 0, valores, 0, argumentos);
+         System.arraycopy(rascunho.tipos, 0, tipos, 0, argumentos);
+         publicado = sequencia;
+     }
+ 
+     boolean publicadoEm(long sequencia) {
+         return publicado == sequencia;
+     }
+ 
+     // Formata substituindo cada "{}" pelo próximo argumento (executado só na thread de escrita)
+     void formatar(StringBuilder saida) {
+         int argumento = 0;
+         for (int i = 0; i < modelo.length(); i++) {
+             char c = modelo.charAt(i);
+             if (c == '{' && i + 1 < modelo.length() && modelo.charAt(i + 1) == '}' && argumento < argumentos) {
+                 if (tipos[argumento] == TEXTO) {
+                     saida.append(textos[argumento]);
+                 } else if (tipos[argumento] == DECIMAL) {
+                     saida.append(Double.longBitsToDouble(valores[argumento]));
+                 } else if (tipos[argumento] == DINHEIRO) {
+                     Dinheiro.formatar(valores[argumento], saida);
+                 } else {
+                     saida.append(valores[argumento]);
+                 }
+                 argumento++;
+                 i++;
+             } else {
+                 saida.append(c);
+             }
+         }
+         Arrays.fill(textos, null);
+     }
+ }
+ 
+ // ✅ DESTINO DE EVENTOS DE LOG (abstração plugável)
+ interface RegistroEventos {
+     // Modo sem custo para benchmarks: nada é formatado nem escrito
+     RegistroEventos NENHUM = (nivel, modelo) -> EventoLog.DESCARTADO;
+ 
+     EventoLog evento(NivelLog nivel, String modelo);
+ 
+     // Aguarda a escrita do que já foi publicado (destinos síncronos não precisam fazer nada)
+     default void descarregar() {
+     }
+ }
+ 
+ // ✅ LOG ASSÍNCRONO EM ANEL: as threads de negócio só preenchem um rascunho próprio e, em publicar(),
+ // copiam para uma posição do anel; formatação e escrita acontecem numa única thread,
+ // sem disputar o lock do System.out. Com o anel cheio, a thread espera com recuo exponencial
+ // por ~2 ms e, se ainda não houver espaço, descarta o evento e conta (nunca fica presa).
+ class RegistroAssincrono implements RegistroEventos {
+     private static final int TENTATIVAS_ANEL_CHEIO = 10;
+ 
+     private final EventoLog[] anel;
+     private final int mascara;
+     private final NivelLog nivelMinimo;
+     private final PrintStream saida;
+     private final AtomicLong cursor = new AtomicLong();
+     private final LongAdder descartados = new LongAdder();
+     private final ThreadLocal<EventoLog> rascunhos = ThreadLocal.withInitial(() -> new EventoLog(this));
+     private volatile long consumido;
+ 
+     public RegistroAssincrono(PrintStream saida, NivelLog nivelMinimo, int capacidade) {
+         if (Integer.bitCount(capacidade) != 1) {
+             throw new IllegalArgumentException("❌ Capacidade do anel deve ser potência de 2!");
+         }
+         this.anel = new EventoLog[capacidade];
+         for (int i = 0; i < capacidade; i++) {
+             anel[i] = new EventoLog(null);
+         }
+         this.mascara = capacidade - 1;
+         this.nivelMinimo = nivelMinimo;
+         this.saida = saida;
+         Thread escritor = new Thread(this::escrever, "log-assincrono");
+         escritor.setDaemon(true);
+         escritor.start();
+         Runtime.getRuntime().addShutdownHook(new Thread(this::descarregar));
+     }
+ 
+     public EventoLog evento(NivelLog nivel, String modelo) {
+         if (nivel.compareTo(nivelMinimo) < 0) {
+             return EventoLog.DESCARTADO;
+         }
+         EventoLog rascunho = rascunhos.get();
+         if (rascunho.emUso) {
+             // Log chamado enquanto outro evento da mesma thread é montado (ou um foi abandonado)
+             rascunho = new EventoLog(this);
+             rascunhos.set(rascunho);
+         }
+         rascunho.preparar(modelo);
+         return rascunho;
+     }
+ 
+     // Reserva só quando há espaço: nenhuma posição reservada fica sem ser preenchida logo em seguida
+     void publicar(EventoLog rascunho) {
+         long sequencia;
+         int tentativas = 0;
+         while (true) {
+             sequencia = cursor.get();
+             if (sequencia - consumido >= anel.length) {
+                 if (++tentativas > TENTATIVAS_ANEL_CHEIO) {
+                     descartados.increment();
+                     return;
+                 }
+                 LockSupport.parkNanos(1_000L << tentativas); // 2 µs, 4 µs, ... ~1 ms
+             } else if (cursor.compareAndSet(sequencia, sequencia + 1)) {
+                 break;
+             }
+         }
+         anel[(int) (sequencia & mascara)].copiarDe(rascunho, sequencia);
+     }
+ 
+     public long descartados() {
+         return descartados.sum();
+     }
+ 
+     // ✅ Espera (até 1 s) a escrita de tudo que já foi publicado; chamado também ao encerrar a JVM
+     @Override
+     public void descarregar() {
+         long alvo = cursor.get();
+         long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+         while (consumido < alvo && System.nanoTime() < limite) {
+             LockSupport.parkNanos(100_000);
+         }
+         saida.flush();
+     }
+ 
+     private void escrever() {
+         StringBuilder linha = new StringBuilder(256);
+         long descartadosInformados = 0;
+         while (true) {
+             if (!escreverProximo(linha)) {
+                 long total = descartados.sum();
+                 if (total > descartadosInformados) {
+                     saida.println("⚠️ Log: " + (total - descartadosInformados) + " evento(s) descartado(s) com o anel cheio");
+                     descartadosInformados = total;
+                 }
+                 LockSupport.parkNanos(50_000);
+             }
+         }
+     }
+ 
+     private boolean escreverProximo(StringBuilder linha) {
+         long proximo = consumido;
+         EventoLog evento = anel[(int) (proximo & mascara)];
+         if (!evento.publicadoEm(proximo)) {
+             return false;
+         }
+         linha.setLength(0);
+         evento.formatar(linha);
+         saida.println(linha);
+         consumido = proximo + 1;
+         return true;
+     }
+ }
+ 
+ // ✅ PONTO DE ACESSO AO LOG (troque o destino com Log.configurar, ex.: RegistroEventos.NENHUM)
+ // O destino padrão inicia, no primeiro uso de Log, uma thread daemon de escrita e um gancho de
+ // desligamento que esvazia o anel. Quem imprime direto no System.out deve chamar Log.descarregar()
+ // antes, senão essa saída pode aparecer intercalada fora de ordem com as linhas de log.
+ final class Log {
+     private static volatile RegistroEventos destino = new RegistroAssincrono(System.out, NivelLog.INFO, 8192);
+ 
+     private Log() {
+     }
+ 
+     public static void configurar(RegistroEventos novoDestino) {
+         destino = novoDestino;
+     }
+ 
+     public static void descarregar() {
+         destino.descarregar();
+     }
+ 
+     public static EventoLog debug(String modelo) {
+         return destino.evento(NivelLog.DEBUG, modelo);
+     }
+ 
+     public static EventoLog info(String modelo) {
+         return destino.evento(NivelLog.INFO, modelo);
+     }
+ 
+     public static EventoLog aviso(String modelo) {
+         return destino.evento(NivelLog.AVISO, modelo);
+     }
+ 
+     public static EventoLog erro(String modelo) {
+         return destino.evento(NivelLog.ERRO, modelo);
+     }
+ }
  
  // ✅ CLASSE QUE GERENCIA APENAS PACIENTES
  class GerenciadorPacientes {
      private List<Paciente> pacientes = new ArrayList<>();
+     private final IndiceCpf indiceCpf = new IndiceCpf();
+     private final ArmazemPacientes armazem; // opcional: sem ele, os pacientes vivem só na memória
+ 
+     public GerenciadorPacientes() {
+         this(null);
+     }
+ 
+     // ✅ Com armazém, cada cadastro também vai para o disco e CPFs de execuções anteriores são reconhecidos
+     public GerenciadorPacientes(ArmazemPacientes armazem) {
+         this.armazem = armazem;
+     }
+ 
+     // ✅ CPF repetido é recusado: a busca no índice é O(1), sem varrer a lista
+     public boolean cadastrarPaciente(String nome, String cpf, String telefone) {
+         long chave = Cpf.empacotar(cpf);
+         if (indiceCpf.posicao(chave) >= 0 || (armazem != null && armazem.contem(chave))) {
+             Log.aviso("⚠️ CPF já cadastrado: {}").com(cpf).publicar();
+             return false;
+         }
+         Paciente paciente = new Paciente(nome, chave, telefone);
+         if (armazem != null) {
+             armazem.salvar(paciente);
+         }
+         indiceCpf.inserir(chave, pacientes.size());
+         pacientes.add(paciente);
+         Log.info("🩺 Paciente cadastrado: {}").com(nome).publicar();
+         return true;
+     }
+ 
+     public Paciente buscarPorCpf(String cpf) {
+         long chave = Cpf.empacotar(cpf);
+         int posicao = indiceCpf.posicao(chave);
+         if (posicao >= 0) {
+             return pacientes.get(posicao);
+         }
+         return armazem == null ? null : armazem.buscar(chave);
+     }
+ 
+     // Pacientes cadastrados nesta execução (os anteriores ficam no armazém e são lidos sob demanda)
+     // Somente leitura: a lista e o índice de CPF precisam mudar juntos, só por cadastrarPaciente
+     public List<Paciente> getPacientes() {
+         return Collections.unmodifiableList(pacientes);
+     }
+ }
+ 
+ // ✅ CPF COMPACTO: os 11 dígitos cabem num long (8 bytes em vez de uma String de ~56 bytes)
+ final class Cpf {
+     private Cpf() {
+     }
+ 
+     // Aceita só "123.456.789-00" ou "12345678900": pontos e traço fora do lugar são recusados
+     public static long empacotar(String cpf) {
+         boolean formatado = cpf.length() == 14;
+         if (!formatado && cpf.length() != 11) {
+             throw new IllegalArgumentException("❌ CPF inválido: " + cpf);
+         }
+         long valor = 0;
+         for (int i = 0; i < cpf.length(); i++) {
+             char c = cpf.charAt(i);
+             if (formatado && (i == 3 || i == 7 || i == 11)) {
+                 if (c != (i == 11 ? '-' : '.')) {
+                     throw new IllegalArgumentException("❌ CPF inválido: " + cpf);
+                 }
+             } else if (c >= '0' && c <= '9') {
+                 valor = valor * 10 + (c - '0');
+             } else {
+                 throw new IllegalArgumentException("❌ CPF inválido: " + cpf);
+             }
+         }
+         return valor;
+     }
+ 
+     public static String formatar(long cpf) {
+         char[] texto = new char[14];
+         for (int i = 13; i >= 0; i--) {
+             if (i == 11) {
+                 texto[i] = '-';
+             } else if (i == 3 || i == 7) {
+                 texto[i] = '.';
+             } else {
+                 texto[i] = (char) ('0' + cpf % 10);
+                 cpf /= 10;
+             }
+         }
+         return new String(texto);
+     }
+ }
+ 
+ // ✅ ÍNDICE CPF → POSIÇÃO: hash aberto com sondagem linear sobre long[] e int[]
+ // Sem objetos por entrada (nem Long, nem nó de HashMap): ~24 bytes por paciente com carga máxima de 50%.
+ class IndiceCpf {
+     private static final long VAZIO = -1; // nenhum CPF empacotado é negativo
+ 
+     private long[] chaves;
+     private int[] posicoes;
+     private int quantidade;
+ 
+     public IndiceCpf() {
+         this(16);
+     }
+ 
+     public IndiceCpf(int capacidadeInicial) {
+         int capacidade = Integer.highestOneBit(Math.max(capacidadeInicial * 2 - 1, 2));
+         chaves = new long[capacidade];
+         posicoes = new int[capacidade];
+         Arrays.fill(chaves, VAZIO);
+     }
+ 
+     // Posição do paciente na lista, ou -1 se o CPF não estiver no índice
+     public int posicao(long cpf) {
+         int mascara = chaves.length - 1;
+         for (int i = espalhar(cpf) & mascara; ; i = (i + 1) & mascara) {
+             long chave = chaves[i];
+             if (chave == cpf) {
+                 return posicoes[i];
+             }
+             if (chave == VAZIO) {
+                 return -1;
+             }
+         }
+     }
+ 
+     // Inclui ou substitui a posição do CPF
+     public void inserir(long cpf, int posicao) {
+         if ((quantidade + 1) * 2 > chaves.length) {
+             redimensionar(chaves.length * 2);
+         }
+         int mascara = chaves.length - 1;
+         int i = espalhar(cpf) & mascara;
+         while (chaves[i] != VAZIO && chaves[i] != cpf) {
+             i = (i + 1) & mascara;
+         }
+         if (chaves[i] == VAZIO) {
+             chaves[i] = cpf;
+             quantidade++;
+         }
+         posicoes[i] = posicao;
+     }
+ 
+     public int quantidade() {
+         return quantidade;
+     }
+ 
+     private void redimensionar(int novaCapacidade) {
+         long[] chavesAntigas = chaves;
+         int[] posicoesAntigas = posicoes;
+         chaves = new long[novaCapacidade];
+         posicoes = new int[novaCapacidade];
+         Arrays.fill(chaves, VAZIO);
+         int mascara = novaCapacidade - 1;
+         for (int j = 0; j < chavesAntigas.length; j++) {
+             long chave = chavesAntigas[j];
+             if (chave != VAZIO) {
+                 int i = espalhar(chave) & mascara;
+                 while (chaves[i] != VAZIO) {
+                     i = (i + 1) & mascara;
+                 }
+                 chaves[i] = chave;
+                 posicoes[i] = posicoesAntigas[j];
+             }
+         }
+     }
+ 
+     // CPFs sequenciais caem em posições vizinhas; a mistura (finalizador do MurmurHash3) espalha os bits
+     private static int espalhar(long chave) {
+         chave ^= chave >>> 33;
+         chave *= 0xff51afd7ed558ccdL;
+         chave ^= chave >>> 33;
+         chave *= 0xc4ceb9fe1a85ec53L;
+         chave ^= chave >>> 33;
+         return (int) chave;
+     }
+ }
+ 
+ // ✅ ÍNDICE CPF → ENDEREÇO MAPEADO EM MEMÓRIA (hash aberto gravado direto no arquivo)
+ // Cabeçalho: [mágico int][capacidade int][quantidade int][ocupados int][marca long][reservado long].
+ // Slots de 16 bytes: [cpf + 1 long][endereço long]; 0 é slot vazio e -1 é slot removido.
+ // Ao abrir, o arquivo só é mapeado: nenhum paciente é lido para reconstruir o índice.
+ class IndiceCpfMapeado implements AutoCloseable {
+     private static final int MAGICO = 0x49435046; // "ICPF"
+     private static final int CABECALHO = 32;
+     private static final int SLOT = 16;
+     private static final long VAZIO = 0;
+     private static final long REMOVIDO = -1;
+     // 1 GB mapeado; com ocupação de no máximo 50% o índice comporta cerca de 33 milhões de CPFs
+     private static final int CAPACIDADE_MAXIMA = 1 << 26;
+ 
+     private final Path arquivo;
+     private MappedByteBuffer mapa;
+     private int capacidade;
+     private int quantidade;
+     private int ocupados; // inclui slots removidos, que também alongam a sondagem
+     private final boolean novo;
+ 
+     public IndiceCpfMapeado(Path arquivo, int capacidadeInicial) {
+         this.arquivo = arquivo;
+         MappedByteBuffer existente = abrirExistente();
+         novo = existente == null;
+         if (novo) {
+             capacidade = Integer.highestOneBit(Math.max(capacidadeInicial * 2 - 1, 2));
+             mapa = criar(arquivo, capacidade, 0);
+         } else {
+             mapa = existente;
+             capacidade = mapa.getInt(4);
+             quantidade = mapa.getInt(8);
+             ocupados = mapa.getInt(12);
+         }
+     }
+ 
+     // Verdadeiro quando o arquivo não existia (ou era inválido) e o índice precisa ser refeito pelo log
+     public boolean novo() {
+         return novo;
+     }
+ 
+     // Endereço gravado para o CPF, ou -1 se ele não estiver no índice
+     public long endereco(long cpf) {
+         long chave = cpf + 1;
+         int mascara = capacidade - 1;
+         for (int i = espalhar(chave) & mascara; ; i = (i + 1) & mascara) {
+             int slot = CABECALHO + i * SLOT;
+             long atual = mapa.getLong(slot);
+             if (atual == chave) {
+                 return mapa.getLong(slot + Long.BYTES);
+             }
+             if (atual == VAZIO) {
+                 return -1;
+             }
+         }
+     }
+ 
+     public void gravar(long cpf, long endereco) {
+         if ((ocupados + 1) * 2 > capacidade) {
+             redimensionar(quantidade * 4 > capacidade ? capacidade * 2 : capacidade);
+         }
+         long chave = cpf + 1;
+         int mascara = capacidade - 1;
+         int livre = -1;
+         for (int i = espalhar(chave) & mascara; ; i = (i + 1) & mascara) {
+             int slot = CABECALHO + i * SLOT;
+             long atual = mapa.getLong(slot);
+             if (atual == chave) {
+                 mapa.putLong(slot + Long.BYTES, endereco);
+                 return;
+             }
+             if (atual == REMOVIDO && livre < 0) {
+                 livre = slot;
+             }
+             if (atual == VAZIO) {
+                 if (livre < 0) {
+                     livre = slot;
+                     ocupados++;
+                 }
+                 break;
+             }
+         }
+         mapa.putLong(livre + Long.BYTES, endereco);
+         mapa.putLong(livre, chave);
+         quantidade++;
+         gravarContadores();
+     }
+ 
+     public boolean remover(long cpf) {
+         long chave = cpf + 1;
+         int mascara = capacidade - 1;
+         for (int i = espalhar(chave) & mascara; ; i = (i + 1) & mascara) {
+             int slot = CABECALHO + i * SLOT;
+             long atual = mapa.getLong(slot);
+             if (atual == chave) {
+                 mapa.putLong(slot, REMOVIDO);
+                 quantidade--;
+                 gravarContadores();
+                 return true;
+             }
+             if (atual == VAZIO) {
+                 return false;
+             }
+         }
+     }
+ 
+     public int quantidade() {
+         return quantidade;
+     }
+ 
+     // Até onde o log já está refletido no índice (endereço do próximo registro a reaplicar)
+     public long marca() {
+         return mapa.getLong(16);
+     }
+ 
+     public void marcar(long endereco) {
+         mapa.putLong(16, endereco);
+     }
+ 
+     public void forcar() {
+         mapa.force();
+     }
+ 
+     @Override
+     public void close() {
+         forcar();
+     }
+ 
+     private void gravarContadores() {
+         mapa.putInt(8, quantidade);
+         mapa.putInt(12, ocupados);
+     }
+ 
+     // Reconstrói num arquivo novo e troca por cima: uma queda no meio deixa o índice antigo intacto
+     private void redimensionar(int novaCapacidade) {
+         if (novaCapacidade > CAPACIDADE_MAXIMA) {
+             throw new IllegalStateException("❌ Capacidade do índice de CPF esgotada!");
+         }
+         Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".novo");
+         MappedByteBuffer novoMapa = criar(temporario, novaCapacidade, marca());
+         int mascara = novaCapacidade - 1;
+         for (int j = 0; j < capacidade; j++) {
+             long chave = mapa.getLong(CABECALHO + j * SLOT);
+             if (chave != VAZIO && chave != REMOVIDO) {
+                 int i = espalhar(chave) & mascara;
+                 while (novoMapa.getLong(CABECALHO + i * SLOT) != VAZIO) {
+                     i = (i + 1) & mascara;
+                 }
+                 novoMapa.putLong(CABECALHO + i * SLOT, chave);
+                 novoMapa.putLong(CABECALHO + i * SLOT + Long.BYTES, mapa.getLong(CABECALHO + j * SLOT + Long.BYTES));
+             }
+         }
+         novoMapa.putInt(8, quantidade);
+         novoMapa.putInt(12, quantidade);
+         novoMapa.force();
+         try {
+             Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao substituir o índice de CPF", e);
+         }
+         mapa = novoMapa;
+         capacidade = novaCapacidade;
+         ocupados = quantidade;
+     }
+ 
+     private MappedByteBuffer abrirExistente() {
+         if (!Files.exists(arquivo)) {
+             return null;
+         }
+         try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+             if (canal.size() < CABECALHO) {
+                 return null;
+             }
+             MappedByteBuffer existente = canal.map(FileChannel.MapMode.READ_WRITE, 0, canal.size());
+             int capacidadeGravada = existente.getInt(4);
+             boolean valido = existente.getInt(0) == MAGICO && capacidadeGravada > 0
+                     && Integer.bitCount(capacidadeGravada) == 1
+                     && canal.size() == CABECALHO + (long) capacidadeGravada * SLOT;
+             return valido ? existente : null;
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao abrir o índice de CPF", e);
+         }
+     }
+ 
+     private static MappedByteBuffer criar(Path destino, int capacidade, long marca) {
+         try (FileChannel canal = FileChannel.open(destino, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                 StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+             MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, CABECALHO + (long) capacidade * SLOT);
+             mapa.putInt(0, MAGICO);
+             mapa.putInt(4, capacidade);
+             mapa.putLong(16, marca);
+             return mapa;
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao criar o índice de CPF", e);
+         }
+     }
+ 
+     private static int espalhar(long chave) {
+         chave ^= chave >>> 33;
+         chave *= 0xff51afd7ed558ccdL;
+         chave ^= chave >>> 33;
+         chave *= 0xc4ceb9fe1a85ec53L;
+         chave ^= chave >>> 33;
+         return (int) chave;
+     }
+ }
+ 
+ // ✅ ARMAZÉM PERSISTENTE DE PACIENTES (log só de acréscimo em segmentos + índice de CPF mapeado)
+ // Registro: [tamanho int][crc32c int][tipo byte][cpf long][u16 + nome UTF-8][u16 + telefone UTF-8].
+ // Remoções gravam só [tipo][cpf]. Endereço de um registro: (número do segmento << 32) | posição.
+ // Atualizar ou remover nunca reescreve o passado: a compactação copia os registros ainda vivos
+ // de segmentos antigos para o fim do log e apaga os arquivos antigos.
+ // O índice mapeado só recebe endereços de registros já forçados para o disco: até o próximo
+ // checkpoint as mudanças ficam num mapa em memória. Assim, depois de uma queda do sistema, o
+ // índice nunca aponta para uma cauda do log que não chegou ao disco.
+ class ArmazemPacientes implements AutoCloseable {
+     private static final int CABECALHO = 8;
+     private static final byte GRAVADO = 1;
+     private static final byte REMOVIDO = 2;
+     private static final int TEXTO_NULO = 0xFFFF; // tamanho reservado para campo nulo
+     private static final int LIMITE_PENDENTES = 4096; // mudanças fora do índice antes de um checkpoint automático
+     private static final String PREFIXO = "pacientes-";
+     private static final String SUFIXO = ".log";
+ 
+     private final Path diretorio;
+     private final long tamanhoSegmento;
+     private final IndiceCpfMapeado indice;
+     private final TreeMap<Integer, FileChannel> segmentos = new TreeMap<>();
+     private final CRC32C crc = new CRC32C();
+     private final ByteBuffer cabecalho = ByteBuffer.allocate(CABECALHO);
+     private final Map<Long, Long> pendentes = new HashMap<>(); // CPF → endereço ainda não durável (-1 = removido)
+     private int quantidade;
+     private int segmentoAtual;
+     private long posicaoAtual;
+     private ScheduledExecutorService compactador;
+ 
+     private interface VisitanteRegistro {
+         void visitar(long endereco, ByteBuffer conteudo);
+     }
+ 
+     /**
+      * Abre o armazém: mapeia o índice e reaplica só o trecho do log gravado depois
+      * da última marca (ou o log inteiro, se o índice não existir). Um registro final
+      * corrompido por queda é descartado, e o trecho reaplicado é forçado para o disco
+      * antes de a marca avançar.
+      */
+     public ArmazemPacientes(Path diretorio, long tamanhoSegmento) {
+         if (tamanhoSegmento <= CABECALHO || tamanhoSegmento > Integer.MAX_VALUE) {
+             throw new IllegalArgumentException("❌ Tamanho de segmento inválido!");
+         }
+         this.diretorio = diretorio;
+         this.tamanhoSegmento = tamanhoSegmento;
+         try {
+             Files.createDirectories(diretorio);
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Não foi possível criar o diretório do armazém", e);
+         }
+         for (Path arquivo : listarSegmentos()) {
+             segmentos.put(numeroDe(arquivo), abrir(arquivo));
+         }
+         indice = new IndiceCpfMapeado(diretorio.resolve("pacientes.idx"), 1 << 16);
+         reaplicar(indice.novo() ? 0 : indice.marca());
+         if (segmentos.isEmpty()) {
+             segmentoAtual = 1;
+             segmentos.put(1, abrir(arquivoDo(1)));
+         } else {
+             segmentoAtual = segmentos.lastKey();
+         }
+         posicaoAtual = tamanho(segmentos.get(segmentoAtual));
+         quantidade = indice.quantidade();
+         checkpoint();
+     }
+ 
+     // ✅ Inclui ou atualiza: o registro novo vai para o fim do log e o índice passa a apontar para ele
+     public synchronized void salvar(Paciente paciente) {
+         byte[] nome = bytesTexto(paciente.getNome());
+         byte[] telefone = bytesTexto(paciente.getTelefone());
+         ByteBuffer conteudo = ByteBuffer.allocate(1 + Long.BYTES + tamanhoTexto(nome) + tamanhoTexto(telefone));
+         conteudo.put(GRAVADO).putLong(paciente.getCpfNumerico());
+         escreverTexto(conteudo, nome);
+         escreverTexto(conteudo, telefone);
+         conteudo.flip();
+         boolean existia = endereco(paciente.getCpfNumerico()) >= 0;
+         publicar(paciente.getCpfNumerico(), anexar(conteudo));
+         if (!existia) {
+             quantidade++;
+         }
+     }
+ 
+     public synchronized boolean remover(long cpf) {
+         if (endereco(cpf) < 0) {
+             return false;
+         }
+         ByteBuffer conteudo = ByteBuffer.allocate(1 + Long.BYTES);
+         conteudo.put(REMOVIDO).putLong(cpf).flip();
+         anexar(conteudo);
+         publicar(cpf, -1);
+         quantidade--;
+         return true;
+     }
+ 
+     // ✅ Uma consulta no índice mapeado e uma leitura posicional: nada além do paciente pedido é lido
+     public synchronized Paciente buscar(long cpf) {
+         long endereco = endereco(cpf);
+         return endereco < 0 ? null : ler(endereco);
+     }
+ 
+     public synchronized boolean contem(long cpf) {
+         return endereco(cpf) >= 0;
+     }
+ 
+     public synchronized int quantidade() {
+         return quantidade;
+     }
+ 
+     /**
+      * Torna o log durável e só então leva as mudanças pendentes para o índice e avança a marca
+      * (a próxima abertura começa dali). Também é chamado sozinho ao trocar de segmento e quando
+      * as mudanças pendentes chegam a LIMITE_PENDENTES.
+      */
+     public synchronized void checkpoint() {
+         forcar(segmentos.get(segmentoAtual));
+         for (Map.Entry<Long, Long> pendente : pendentes.entrySet()) {
+             if (pendente.getValue() < 0) {
+                 indice.remover(pendente.getKey());
+             } else {
+                 indice.gravar(pendente.getKey(), pendente.getValue());
+             }
+         }
+         pendentes.clear();
+         indice.marcar(((long) segmentoAtual << 32) | posicaoAtual);
+         indice.forcar();
+     }
+ 
+     /**
+      * Compacta os segmentos fechados cuja fração de bytes vivos está abaixo do limiar:
+      * os registros vivos são copiados para o fim do log e o arquivo antigo é apagado.
+      * Cada cópia segura o lock só pelo registro copiado, então gravações e buscas continuam.
+      * Retorna quantos bytes foram liberados.
+      */
+     public long compactar(double limiarVivo) {
+         List<Integer> fechados;
+         synchronized (this) {
+             fechados = new ArrayList<>(segmentos.headMap(segmentoAtual, false).keySet());
+         }
+         long liberados = 0;
+         for (int numero : fechados) {
+             FileChannel canal;
+             synchronized (this) {
+                 canal = segmentos.get(numero);
+             }
+             // Segmentos fechados não mudam mais: podem ser lidos fora do lock
+             MappedByteBuffer dados = mapearLeitura(canal);
+             long[] vivos = new long[1];
+             synchronized (this) {
+                 percorrer(numero, dados, 0, (endereco, conteudo) -> {
+                     if (vivo(numero, endereco, conteudo)) {
+                         vivos[0] += CABECALHO + conteudo.remaining();
+                     }
+                 });
+             }
+             if (vivos[0] > limiarVivo * dados.capacity()) {
+                 continue;
+             }
+             percorrer(numero, dados, 0, (endereco, conteudo) -> {
+                 synchronized (this) {
+                     if (vivo(numero, endereco, conteudo)) {
+                         long novo = anexar(conteudo.duplicate());
+                         if (conteudo.get(0) == GRAVADO) {
+                             publicar(conteudo.getLong(1), novo);
+                         }
+                     }
+                 }
+             });
+             synchronized (this) {
+                 // O índice só deixa de apontar para o segmento depois que as cópias estão em disco
+                 checkpoint();
+                 segmentos.remove(numero);
+                 fechar(canal);
+                 try {
+                     Files.delete(arquivoDo(numero));
+                 } catch (IOException e) {
+                     throw new UncheckedIOException("❌ Falha ao apagar segmento compactado", e);
+                 }
+             }
+             liberados += dados.capacity() - vivos[0];
+         }
+         return liberados;
+     }
+ 
+     // ✅ Compactação periódica numa thread daemon; erros são registrados no log e a próxima rodada tenta de novo
+     public synchronized void iniciarCompactacao(long intervalo, TimeUnit unidade, double limiarVivo) {
+         if (compactador != null) {
+             return;
+         }
+         compactador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+             Thread thread = new Thread(tarefa, "compactador-pacientes");
+             thread.setDaemon(true);
+             return thread;
+         });
+         compactador.scheduleWithFixedDelay(() -> {
+             try {
+                 long liberados = compactar(limiarVivo);
+                 if (liberados > 0) {
+                     Log.info("🧹 Compactação liberou {} bytes").com(liberados).publicar();
+                 }
+             } catch (RuntimeException e) {
+                 Log.erro("❌ Falha na compactação: {}").com(String.valueOf(e.getMessage())).publicar();
+             }
+         }, intervalo, intervalo, unidade);
+     }
+ 
+     @Override
+     public void close() {
+         ScheduledExecutorService parar;
+         synchronized (this) {
+             parar = compactador;
+             compactador = null;
+         }
+         if (parar != null) {
+             parar.shutdown();
+             try {
+                 parar.awaitTermination(1, TimeUnit.MINUTES);
+             } catch (InterruptedException e) {
+                 Thread.currentThread().interrupt();
+             }
+         }
+         synchronized (this) {
+             checkpoint();
+             indice.close();
+             for (FileChannel canal : segmentos.values()) {
+                 fechar(canal);
+             }
+             segmentos.clear();
+         }
+     }
+ 
+     // Gravação viva: o índice aponta exatamente para ela. Remoção viva: o CPF continua fora do índice
+     // e ainda há segmento mais antigo com gravações que ela precisa anular numa reconstrução completa.
+     private boolean vivo(int numero, long endereco, ByteBuffer conteudo) {
+         long cpf = conteudo.getLong(1);
+         if (conteudo.get(0) == GRAVADO) {
+             return endereco(cpf) == endereco;
+         }
+         return endereco(cpf) < 0 && segmentos.firstKey() < numero;
+     }
+
+     // Endereço vigente do CPF: a mudança pendente, se houver, vale mais que o índice
+     private long endereco(long cpf) {
+         Long pendente = pendentes.get(cpf);
+         return pendente != null ? pendente : indice.endereco(cpf);
+     }
+
+     private void publicar(long cpf, long endereco) {
+         pendentes.put(cpf, endereco);
+         if (pendentes.size() >= LIMITE_PENDENTES) {
+             checkpoint();
+         }
+     }
+ 
+     private void reaplicar(long desde) {
+         int primeiro = (int) (desde >>> 32);
+         for (Map.Entry<Integer, FileChannel> entrada : segmentos.tailMap(primeiro, true).entrySet()) {
+             int numero = entrada.getKey();
+             MappedByteBuffer dados = mapearLeitura(entrada.getValue());
+             int inicio = numero == primeiro ? (int) (desde & 0xFFFFFFFFL) : 0;
+             int fim = percorrer(numero, dados, inicio, (endereco, conteudo) -> {
+                 long cpf = conteudo.getLong(1);
+                 if (conteudo.get(0) == GRAVADO) {
+                     indice.gravar(cpf, endereco);
+                 } else {
+                     indice.remover(cpf);
+                 }
+             });
+             if (fim < dados.capacity() && numero == segmentos.lastKey()) {
+                 try {
+                     entrada.getValue().truncate(fim);
+                 } catch (IOException e) {
+                     throw new UncheckedIOException("❌ Falha ao descartar registro incompleto", e);
+                 }
+             }
+         }
+     }
+ 
+     // Visita os registros íntegros a partir de inicio e devolve onde os dados válidos terminam
+     private int percorrer(int numero, ByteBuffer dados, int inicio, VisitanteRegistro visitante) {
+         CRC32C soma = new CRC32C();
+         int posicao = inicio;
+         while (dados.capacity() - posicao >= CABECALHO) {
+             int tamanho = dados.getInt(posicao);
+             int esperado = dados.getInt(posicao + 4);
+             if (tamanho < 1 + Long.BYTES || tamanho > dados.capacity() - posicao - CABECALHO) {
+                 break;
+             }
+             ByteBuffer conteudo = dados.slice(posicao + CABECALHO, tamanho);
+             soma.reset();
+             soma.update(conteudo.duplicate());
+             if ((int) soma.getValue() != esperado) {
+                 break;
+             }
+             visitante.visitar(((long) numero << 32) | posicao, conteudo);
+             posicao += CABECALHO + tamanho;
+         }
+         return posicao;
+     }
+ 
+     private long anexar(ByteBuffer conteudo) {
+         int tamanho = conteudo.remaining();
+         if (posicaoAtual > 0 && posicaoAtual + CABECALHO + tamanho > tamanhoSegmento) {
+             rolarSegmento();
+         }
+         crc.reset();
+         crc.update(conteudo.duplicate());
+         ByteBuffer registro = ByteBuffer.allocate(CABECALHO + tamanho);
+         registro.putInt(tamanho).putInt((int) crc.getValue()).put(conteudo).flip();
+         long endereco = ((long) segmentoAtual << 32) | posicaoAtual;
+         escreverTudo(segmentos.get(segmentoAtual), registro, posicaoAtual);
+         posicaoAtual += registro.capacity();
+         return endereco;
+     }
+ 
+     private Paciente ler(long endereco) {
+         FileChannel canal = segmentos.get((int) (endereco >>> 32));
+         long posicao = endereco & 0xFFFFFFFFL;
+         cabecalho.clear();
+         lerTudo(canal, cabecalho, posicao);
+         int tamanho = cabecalho.getInt(0);
+         ByteBuffer conteudo = ByteBuffer.allocate(tamanho);
+         lerTudo(canal, conteudo, posicao + CABECALHO);
+         conteudo.flip();
+         crc.reset();
+         crc.update(conteudo.duplicate());
+         if ((int) crc.getValue() != cabecalho.getInt(4) || conteudo.get() != GRAVADO) {
+             throw new IllegalStateException("❌ Registro de paciente corrompido no endereço " + endereco);
+         }
+         long cpf = conteudo.getLong();
+         String nome = lerTexto(conteudo);
+         String telefone = lerTexto(conteudo);
+         return new Paciente(nome, cpf, telefone);
+     }
+ 
+     // Campos nulos viram o tamanho reservado TEXTO_NULO, sem bytes
+     private static byte[] bytesTexto(String texto) {
+         if (texto == null) {
+             return null;
+         }
+         byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+         if (bytes.length >= TEXTO_NULO) {
+             throw new IllegalArgumentException("❌ Campo grande demais para o armazém");
+         }
+         return bytes;
+     }
  
-     public void cadastrarPaciente(String nome, String cpf, String telefone) {
-         pacientes.add(new Paciente(nome, cpf, telefone));
-         System.out.println("🩺 Paciente cadastrado: " + nome);
+     private static int tamanhoTexto(byte[] bytes) {
+         return 2 + (bytes == null ? 0 : bytes.length);
      }
  
-     public List<Paciente> getPacientes() {
-         return pacientes;
+     private static void escreverTexto(ByteBuffer conteudo, byte[] bytes) {
+         if (bytes == null) {
+             conteudo.putShort((short) TEXTO_NULO);
+         } else {
+             conteudo.putShort((short) bytes.length).put(bytes);
+         }
+     }
+ 
+     private static String lerTexto(ByteBuffer conteudo) {
+         int tamanho = conteudo.getShort() & 0xFFFF;
+         if (tamanho == TEXTO_NULO) {
+             return null;
+         }
+         byte[] bytes = new byte[tamanho];
+         conteudo.get(bytes);
+         return new String(bytes, StandardCharsets.UTF_8);
+     }
+ 
+     // O checkpoint força o segmento que está saindo e deixa a próxima abertura reaplicar só a partir do novo
+     private void rolarSegmento() {
+         checkpoint();
+         segmentoAtual++;
+         segmentos.put(segmentoAtual, abrir(arquivoDo(segmentoAtual)));
+         posicaoAtual = 0;
+         indice.marcar((long) segmentoAtual << 32);
+     }
+ 
+     private Path arquivoDo(int numero) {
+         return diretorio.resolve(String.format("%s%08d%s", PREFIXO, numero, SUFIXO));
+     }
+ 
+     private List<Path> listarSegmentos() {
+         try (Stream<Path> arquivos = Files.list(diretorio)) {
+             return arquivos.filter(p -> p.getFileName().toString().startsWith(PREFIXO))
+                     .filter(p -> p.getFileName().toString().endsWith(SUFIXO))
+                     .sorted()
+                     .collect(Collectors.toList());
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao listar segmentos do armazém", e);
+         }
+     }
+ 
+     private static int numeroDe(Path arquivo) {
+         String nome = arquivo.getFileName().toString();
+         return Integer.parseInt(nome.substring(PREFIXO.length(), nome.length() - SUFIXO.length()));
+     }
+ 
+     private static FileChannel abrir(Path arquivo) {
+         try {
+             return FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao abrir segmento do armazém", e);
+         }
+     }
+ 
+     private static MappedByteBuffer mapearLeitura(FileChannel canal) {
+         try {
+             return canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao mapear segmento do armazém", e);
+         }
+     }
+ 
+     private static long tamanho(FileChannel canal) {
+         try {
+             return canal.size();
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao ler tamanho do segmento", e);
+         }
+     }
+ 
+     private static void escreverTudo(FileChannel canal, ByteBuffer origem, long posicao) {
+         try {
+             while (origem.hasRemaining()) {
+                 posicao += canal.write(origem, posicao);
+             }
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao gravar no armazém", e);
+         }
+     }
+ 
+     private static void lerTudo(FileChannel canal, ByteBuffer destino, long posicao) {
+         try {
+             while (destino.hasRemaining()) {
+                 int lidos = canal.read(destino, posicao);
+                 if (lidos < 0) {
+                     throw new IllegalStateException("❌ Registro de paciente truncado na posição " + posicao);
+                 }
+                 posicao += lidos;
+             }
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao ler do armazém", e);
+         }
+     }
+ 
+     private static void forcar(FileChannel canal) {
+         try {
+             canal.force(false);
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao tornar o armazém durável", e);
+         }
+     }
+ 
+     private static void fechar(FileChannel canal) {
+         try {
+             canal.close();
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao fechar segmento do armazém", e);
+         }
      }
  }
  
  // ✅ CLASSE QUE GERENCIA APENAS CONSULTAS
+ // Agenda indexada duas vezes: por horário (toda a clínica) e por paciente.
+ // Marcar, cancelar e buscar um intervalo custam O(log n), sem varrer a lista nem montar strings.
  class GerenciadorConsultas {
-     private List<String> consultas = new ArrayList<>();
+     // STRICT: datas que não existem (ex.: 31/02) são recusadas em vez de ajustadas
+     private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("dd/MM/uuuu").withResolverStyle(ResolverStyle.STRICT);
+     private static final DateTimeFormatter FORMATO_HORARIO = DateTimeFormatter.ofPattern("dd/MM/uuuu HH:mm");
+ 
+     private final NavigableSet<Consulta> porHorario = new TreeSet<>(Consulta.ORDEM);
+     private final Map<String, NavigableSet<Consulta>> porPaciente = new HashMap<>();
+     private long proximaSequencia;
  
-     public void marcarConsulta(String pacienteNome, String data) {
-         consultas.add(pacienteNome + " - " + data);
-         System.out.println("📅 Consulta marcada para " + pacienteNome + " na data " + data);
+     // Data inválida é registrada no log e devolve false, como os demais erros de entrada
+     public boolean marcarConsulta(String pacienteNome, String data) {
+         LocalDateTime horario = lerData(data);
+         if (horario == null) {
+             return false;
+         }
+         marcarConsulta(pacienteNome, horario);
+         return true;
      }
  
-     public void cancelarConsulta(String pacienteNome, String data) {
-         String consulta = pacienteNome + " - " + data;
-         if (consultas.remove(consulta)) {
-             System.out.println("❌ Consulta cancelada para " + pacienteNome + " na data " + data);
-         } else {
-             System.out.println("⚠️ Consulta não encontrada para " + pacienteNome);
+     public Consulta marcarConsulta(String pacienteNome, LocalDateTime horario) {
+         Consulta consulta = new Consulta(pacienteNome, Consulta.minutoEpoca(horario), proximaSequencia++);
+         porHorario.add(consulta);
+         porPaciente.computeIfAbsent(pacienteNome, nome -> new TreeSet<>(Consulta.ORDEM)).add(consulta);
+         Log.info("📅 Consulta marcada para {} em {}").com(pacienteNome).com(consulta.getHorario().format(FORMATO_HORARIO)).publicar();
+         return consulta;
+     }
+ 
+     public boolean cancelarConsulta(String pacienteNome, String data) {
+         LocalDateTime horario = lerData(data);
+         return horario != null && cancelarConsulta(pacienteNome, horario);
+     }
+ 
+     // ✅ Busca só entre as consultas do paciente naquele minuto; remove a marcada primeiro
+     public boolean cancelarConsulta(String pacienteNome, LocalDateTime horario) {
+         NavigableSet<Consulta> doPaciente = porPaciente.get(pacienteNome);
+         long minuto = Consulta.minutoEpoca(horario);
+         Consulta consulta = doPaciente == null ? null
+                 : doPaciente.ceiling(new Consulta(null, minuto, Long.MIN_VALUE));
+         if (consulta == null || consulta.getMinutoEpoca() != minuto) {
+             Log.aviso("⚠️ Consulta não encontrada para {}").com(pacienteNome).publicar();
+             return false;
+         }
+         doPaciente.remove(consulta);
+         if (doPaciente.isEmpty()) {
+             porPaciente.remove(pacienteNome);
+         }
+         porHorario.remove(consulta);
+         Log.info("❌ Consulta cancelada para {} em {}").com(pacienteNome).com(consulta.getHorario().format(FORMATO_HORARIO)).publicar();
+         return true;
+     }
+ 
+     // ✅ Consultas em [inicio, fim), em ordem de horário (visão somente leitura, sem cópia)
+     public NavigableSet<Consulta> consultasEntre(LocalDateTime inicio, LocalDateTime fim) {
+         return Collections.unmodifiableNavigableSet(porHorario.subSet(
+                 new Consulta(null, Consulta.minutoEpoca(inicio), Long.MIN_VALUE), true,
+                 new Consulta(null, Consulta.minutoEpoca(fim), Long.MIN_VALUE), false));
+     }
+ 
+     public NavigableSet<Consulta> consultasDoPaciente(String pacienteNome) {
+         NavigableSet<Consulta> doPaciente = porPaciente.get(pacienteNome);
+         return doPaciente == null ? Collections.emptyNavigableSet() : Collections.unmodifiableNavigableSet(doPaciente);
+     }
+ 
+     public int quantidade() {
+         return porHorario.size();
+     }
+ 
+     // Nula se a data não estiver no formato dd/MM/uuuu ou não existir no calendário
+     private static LocalDateTime lerData(String data) {
+         if (data != null) {
+             try {
+                 return LocalDate.parse(data, FORMATO_DATA).atStartOfDay();
+             } catch (DateTimeParseException e) {
+                 // segue para o aviso abaixo
+             }
+         }
+         Log.aviso("⚠️ Data de consulta inválida: {}").com(String.valueOf(data)).publicar();
+         return null;
+     }
+ }
+ 
+ // ✅ CONSULTA TIPADA: horário em minutos desde 1970 (UTC) e sequência para desempatar o mesmo minuto
+ final class Consulta {
+     static final Comparator<Consulta> ORDEM = (a, b) -> {
+         int porMinuto = Long.compare(a.minutoEpoca, b.minutoEpoca);
+         return porMinuto != 0 ? porMinuto : Long.compare(a.sequencia, b.sequencia);
+     };
+ 
+     private final String pacienteNome;
+     private final long minutoEpoca;
+     private final long sequencia;
+ 
+     Consulta(String pacienteNome, long minutoEpoca, long sequencia) {
+         this.pacienteNome = pacienteNome;
+         this.minutoEpoca = minutoEpoca;
+         this.sequencia = sequencia;
+     }
+ 
+     static long minutoEpoca(LocalDateTime horario) {
+         return Math.floorDiv(horario.toEpochSecond(ZoneOffset.UTC), 60);
+     }
+ 
+     public String getPacienteNome() {
+         return pacienteNome;
+     }
+ 
+     public long getMinutoEpoca() {
+         return minutoEpoca;
+     }
+ 
+     public LocalDateTime getHorario() {
+         return LocalDateTime.ofEpochSecond(minutoEpoca * 60, 0, ZoneOffset.UTC);
+     }
+ 
+     @Override
+     public String toString() {
+         return pacienteNome + " - " + getHorario();
+     }
+ }
+ 
+ // ✅ LOG DE PAGAMENTOS SEM LOCK: cada thread reserva uma posição com um CAS no cursor
+ // e grava o valor em centavos num segmento long[]; nada é encaixotado e segmentos cheios nunca são copiados.
+ // Um vetor paralelo de marcas diz quais posições já foram escritas, então qualquer valor
+ // (inclusive 0 de uma consulta gratuita ou negativo de um estorno) pode ser registrado.
+ class RegistroPagamentos {
+     private static final int BITS_SEGMENTO = 12;
+     private static final int TAMANHO_SEGMENTO = 1 << BITS_SEGMENTO;
+     private static final int MAX_SEGMENTOS = 1 << 16;
+     private static final long CAPACIDADE = (long) MAX_SEGMENTOS << BITS_SEGMENTO;
+ 
+     private static final class Segmento {
+         final long[] valores = new long[TAMANHO_SEGMENTO];
+         final AtomicIntegerArray publicados = new AtomicIntegerArray(TAMANHO_SEGMENTO);
+     }
+ 
+     private final AtomicReferenceArray<Segmento> segmentos = new AtomicReferenceArray<>(MAX_SEGMENTOS);
+     private final AtomicLong proximaPosicao = new AtomicLong();
+ 
+     public void adicionar(long centavos) {
+         // A capacidade é conferida antes de reservar: uma recusa nunca deixa posição reservada sem valor
+         long posicao;
+         do {
+             posicao = proximaPosicao.get();
+             if (posicao >= CAPACIDADE) {
+                 throw new IllegalStateException("❌ Capacidade do registro de pagamentos esgotada!");
+             }
+         } while (!proximaPosicao.compareAndSet(posicao, posicao + 1));
+         Segmento segmento = segmento((int) (posicao >>> BITS_SEGMENTO));
+         int indice = (int) (posicao & (TAMANHO_SEGMENTO - 1));
+         segmento.valores[indice] = centavos;
+         segmento.publicados.set(indice, 1); // escrita volátil: publica o valor gravado acima
+     }
+ 
+     private Segmento segmento(int indice) {
+         Segmento segmento = segmentos.get(indice);
+         if (segmento == null) {
+             segmentos.compareAndSet(indice, null, new Segmento());
+             segmento = segmentos.get(indice);
+         }
+         return segmento;
+     }
+ 
+     public long quantidade() {
+         return proximaPosicao.get();
+     }
+ 
+     /**
+      * Copia os valores na ordem de chegada. A cópia para no primeiro slot
+      * reservado mas ainda não escrito, então é sempre um prefixo consistente do log.
+      */
+     public long[] listar() {
+         long limite = Math.min(proximaPosicao.get(), Integer.MAX_VALUE - 8);
+         long[] visao = new long[(int) limite];
+         int n = 0;
+         for (; n < limite; n++) {
+             Segmento segmento = segmentos.get(n >>> BITS_SEGMENTO);
+             int indice = n & (TAMANHO_SEGMENTO - 1);
+             if (segmento == null || segmento.publicados.get(indice) == 0) {
+                 break;
+             }
+             visao[n] = segmento.valores[indice];
          }
+         return n == visao.length ? visao : Arrays.copyOf(visao, n);
      }
  }
  
  // ✅ CLASSE QUE GERENCIA APENAS PAGAMENTOS
+ // Pode ser chamada de várias threads: o log não tem lock e o total corrente fica num LongAdder
+ // (uma célula por thread em disputa), então o relatório lê o total sem percorrer os pagamentos.
  class GerenciadorPagamentos {
-     private List<Double> pagamentos = new ArrayList<>();
+     private final RegistroPagamentos pagamentos = new RegistroPagamentos();
+     private final LongAdder total = new LongAdder();
+ 
+     public void processarPagamentoEmCentavos(String pacienteNome, long valorCentavos) {
+         pagamentos.adicionar(valorCentavos);
+         total.add(valorCentavos);
+         Log.info("💰 Pagamento de {} processado para {}").comDinheiro(valorCentavos).com(pacienteNome).publicar();
+     }
+ 
+     // Total em centavos, sem recalcular a partir do log
+     public long calcularTotalEmCentavos() {
+         return total.sum();
+     }
  
-     public void processarPagamento(String pacienteNome, double valor) {
-         pagamentos.add(valor);
-         System.out.println("💰 Pagamento de R$" + valor + " processado para " + pacienteNome);
+     public long quantidadePagamentos() {
+         return pagamentos.quantidade();
      }
  
-     public double calcularTotal() {
-         return pagamentos.stream().mapToDouble(Double::doubleValue).sum();
+     public long[] listarPagamentos() {
+         return pagamentos.listar();
      }
  }
  
  // ✅ CLASSE QUE GERA RELATÓRIOS
  class GeradorRelatorios {
      public void gerarRelatorioPacientes(List<Paciente> pacientes) {
+         Log.descarregar(); // o relatório sai no console depois das linhas de log já publicadas
          System.out.println("📋 Lista de Pacientes:");
          for (Paciente p : pacientes) {
              System.out.println("👤 " + p.getNome() + " - CPF: " + p.getCpf());
          }
      }
  
+     // ✅ Relatório em arquivo, página a página: grava pacientes[primeiro, primeiro + quantidade) sem copiar a lista
+     public int gerarRelatorioPacientes(List<Paciente> pacientes, int primeiro, int quantidade, EscritorRelatorio escritor) {
+         int fim = Math.min(pacientes.size(), primeiro + quantidade);
+         long bytesAntes = escritor.bytesEscritos();
+         long inicio = System.nanoTime();
+         for (int i = primeiro; i < fim; i++) {
+             escritor.escrever(pacientes.get(i));
+         }
+         escritor.descarregar();
+         long nanos = Math.max(1, System.nanoTime() - inicio);
+         int registros = Math.max(0, fim - primeiro);
+         double mbPorSegundo = (escritor.bytesEscritos() - bytesAntes) * 1_000.0 / nanos;
+         Log.info("📄 Relatório gravado: {} pacientes a {} MB/s").com(registros).com(mbPorSegundo).publicar();
+         return registros;
+     }
+ 
      public void gerarRelatorioFinanceiro(GerenciadorPagamentos gerenciadorPagamentos) {
-         System.out.println("📊 Relatório Financeiro: Total arrecadado: R$" + gerenciadorPagamentos.calcularTotal());
+         Log.descarregar();
+         System.out.println("📊 Relatório Financeiro: Total arrecadado: " + Dinheiro.formatar(gerenciadorPagamentos.calcularTotalEmCentavos()));
+     }
+ }
+ 
+ // ✅ ESCRITOR DE RELATÓRIOS EM STREAMING: codifica direto num ByteBuffer direto reutilizado e
+ // grava no FileChannel; a memória usada é a mesma para mil ou cem milhões de pacientes.
+ // Ao passar de bytesPorArquivo, abre o próximo arquivo (relatorio-00001.csv, relatorio-00002.csv, ...).
+ class EscritorRelatorio implements AutoCloseable {
+     enum Formato {
+         CSV("csv"),
+         // Binário: cabeçalho "PACR" + versão; por paciente: u16 tamanho + nome UTF-8, long cpf, u16 tamanho + telefone UTF-8
+         BINARIO("bin");
+ 
+         final String extensao;
+ 
+         Formato(String extensao) {
+             this.extensao = extensao;
+         }
+     }
+ 
+     private static final int MAGICO = 0x50414352; // "PACR"
+     private static final short VERSAO = 1;
+     private static final int TAMANHO_BUFFER = 64 * 1024;
+     private static final int MAX_CAMPO = 0xFFFF;
+ 
+     private final Path diretorio;
+     private final String prefixo;
+     private final Formato formato;
+     private final long bytesPorArquivo;
+     private final ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+     private FileChannel canal;
+     private int arquivos;
+     private long bytesNoArquivo;
+     private long bytesEscritos;
+ 
+     public EscritorRelatorio(Path diretorio, String prefixo, Formato formato, long bytesPorArquivo) {
+         if (bytesPorArquivo <= 0) {
+             throw new IllegalArgumentException("❌ Tamanho máximo de arquivo inválido!");
+         }
+         this.diretorio = diretorio;
+         this.prefixo = prefixo;
+         this.formato = formato;
+         this.bytesPorArquivo = bytesPorArquivo;
+         try {
+             Files.createDirectories(diretorio);
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Não foi possível criar o diretório do relatório", e);
+         }
+     }
+ 
+     public void escrever(Paciente paciente) {
+         if (canal == null || bytesNoArquivo + buffer.position() >= bytesPorArquivo) {
+             proximoArquivo();
+         }
+         if (formato == Formato.CSV) {
+             escreverCampoCsv(paciente.getNome());
+             garantir(16);
+             buffer.put((byte) ',');
+             escreverCpf(paciente.getCpfNumerico());
+             buffer.put((byte) ',');
+             escreverCampoCsv(paciente.getTelefone());
+             garantir(1);
+             buffer.put((byte) '\n');
+         } else {
+             escreverCampoBinario(paciente.getNome());
+             garantir(Long.BYTES);
+             buffer.putLong(paciente.getCpfNumerico());
+             escreverCampoBinario(paciente.getTelefone());
+         }
+     }
+ 
+     // Esvazia o buffer no arquivo atual (o fechamento também faz isso)
+     public void descarregar() {
+         if (canal == null || buffer.position() == 0) {
+             return;
+         }
+         buffer.flip();
+         try {
+             while (buffer.hasRemaining()) {
+                 bytesNoArquivo += canal.write(buffer);
+             }
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao gravar relatório", e);
+         } finally {
+             bytesEscritos += buffer.position();
+             buffer.clear();
+         }
+     }
+ 
+     // Bytes já gravados em todos os arquivos (sem contar o que ainda está no buffer)
+     public long bytesEscritos() {
+         return bytesEscritos;
+     }
+ 
+     public int quantidadeArquivos() {
+         return arquivos;
+     }
+ 
+     @Override
+     public void close() {
+         descarregar();
+         fecharArquivo();
+     }
+ 
+     private void proximoArquivo() {
+         descarregar();
+         fecharArquivo();
+         arquivos++;
+         Path arquivo = diretorio.resolve(String.format("%s-%05d.%s", prefixo, arquivos, formato.extensao));
+         try {
+             canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING);
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao abrir arquivo do relatório", e);
+         }
+         bytesNoArquivo = 0;
+         if (formato == Formato.CSV) {
+             escreverAscii("nome,cpf,telefone\n");
+         } else {
+             buffer.putInt(MAGICO).putShort(VERSAO);
+         }
+     }
+ 
+     private void fecharArquivo() {
+         if (canal == null) {
+             return;
+         }
+         try {
+             canal.close();
+         } catch (IOException e) {
+             throw new UncheckedIOException("❌ Falha ao fechar arquivo do relatório", e);
+         }
+         canal = null;
+     }
+ 
+     private void garantir(int bytes) {
+         if (buffer.remaining() < bytes) {
+             descarregar();
+         }
+     }
+ 
+     // Aspas só quando o campo tem vírgula, aspas ou quebra de linha (RFC 4180)
+     private void escreverCampoCsv(String campo) {
+         boolean aspas = false;
+         for (int i = 0; i < campo.length() && !aspas; i++) {
+             char c = campo.charAt(i);
+             aspas = c == ',' || c == '"' || c == '\n' || c == '\r';
+         }
+         if (!aspas) {
+             escreverUtf8(campo, false);
+             return;
+         }
+         garantir(1);
+         buffer.put((byte) '"');
+         escreverUtf8(campo, true);
+         garantir(1);
+         buffer.put((byte) '"');
+     }
+ 
+     // Tamanho gravado depois do texto, na posição reservada (o campo não é codificado duas vezes)
+     private void escreverCampoBinario(String campo) {
+         // Pior caso de 3 bytes por char, mais a folga de escreverUtf8: o buffer não é esvaziado no meio do campo
+         int pior = Short.BYTES + campo.length() * 3 + 4;
+         if (pior > buffer.capacity()) {
+             throw new IllegalArgumentException("❌ Campo grande demais para o relatório binário");
+         }
+         garantir(pior);
+         int posicaoTamanho = buffer.position();
+         buffer.position(posicaoTamanho + Short.BYTES);
+         escreverUtf8(campo, false);
+         int tamanho = buffer.position() - posicaoTamanho - Short.BYTES;
+         if (tamanho > MAX_CAMPO) {
+             throw new IllegalArgumentException("❌ Campo grande demais para o relatório binário");
+         }
+         buffer.putShort(posicaoTamanho, (short) tamanho);
+     }
+ 
+     // "123.456.789-00" escrito dígito a dígito, sem criar String
+     private void escreverCpf(long cpf) {
+         int inicio = buffer.position();
+         buffer.position(inicio + 14);
+         for (int i = 13; i >= 0; i--) {
+             if (i == 11) {
+                 buffer.put(inicio + i, (byte) '-');
+             } else if (i == 3 || i == 7) {
+                 buffer.put(inicio + i, (byte) '.');
+             } else {
+                 buffer.put(inicio + i, (byte) ('0' + cpf % 10));
+                 cpf /= 10;
+             }
+         }
+     }
+ 
+     private void escreverAscii(String texto) {
+         garantir(texto.length());
+         for (int i = 0; i < texto.length(); i++) {
+             buffer.put((byte) texto.charAt(i));
+         }
+     }
+ 
+     // Codificação UTF-8 manual: nenhum CharBuffer ou byte[] intermediário por campo
+     private void escreverUtf8(String texto, boolean dobrarAspas) {
+         for (int i = 0; i < texto.length(); i++) {
+             garantir(4);
+             char c = texto.charAt(i);
+             if (c < 0x80) {
+                 if (dobrarAspas && c == '"') {
+                     buffer.put((byte) '"');
+                 }
+                 buffer.put((byte) c);
+             } else if (c < 0x800) {
+                 buffer.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+             } else if (Character.isHighSurrogate(c) && i + 1 < texto.length() && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                 int ponto = Character.toCodePoint(c, texto.charAt(++i));
+                 buffer.put((byte) (0xF0 | ponto >> 18)).put((byte) (0x80 | ponto >> 12 & 0x3F))
+                         .put((byte) (0x80 | ponto >> 6 & 0x3F)).put((byte) (0x80 | ponto & 0x3F));
+             } else if (Character.isSurrogate(c)) {
+                 buffer.put((byte) '?');
+             } else {
+                 buffer.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+             }
+         }
      }
  }
  
  // ✅ CLASSE PACIENTE (Representação dos pacientes no sistema)
  class Paciente {
      private String nome;
-     private String cpf;
+     private long cpf; // empacotado (veja Cpf)
      private String telefone;
  
      public Paciente(String nome, String cpf, String telefone) {
+         this(nome, Cpf.empacotar(cpf), telefone);
+     }
+ 
+     public Paciente(String nome, long cpf, String telefone) {
          this.nome = nome;
          this.cpf = cpf;
          this.telefone = telefone;
@@ -108,9 +1842,402 @@
          return nome;
      }
  
+     // Formatado sob demanda: "123.456.789-00"
      public String getCpf() {
+         return Cpf.formatar(cpf);
+     }
+ 
+     public long getCpfNumerico() {
          return cpf;
      }
+ 
+     public String getTelefone() {
+         return telefone;
+     }
+ }
+ 
+ // ✅ MEMÓRIA FORA DO HEAP EM PARTES (ByteBuffers diretos de até 16 MB endereçados por um long)
+ // A primeira parte nasce do tamanho pedido e dobra (com cópia) até 16 MB, então regiões pequenas
+ // reservam pouco; daí em diante cresce com partes novas de 16 MB, sem copiar as antigas.
+ // O GC só enxerga o vetor de partes. Leituras e escritas são alinhadas ao tamanho do valor,
+ // então nenhum valor atravessa duas partes.
+ // Buffers descartados (a primeira parte ao dobrar, ou uma região inteira trocada num redimensionamento)
+ // só são devolvidos ao sistema quando o GC do heap os coleta. Como quase nada vive no heap, isso
+ // pode demorar: até lá a memória direta guarda a versão antiga e a nova. Se o limite
+ // (-XX:MaxDirectMemorySize) for atingido, o próprio allocateDirect pede um GC e tenta de novo,
+ // desde que -XX:+DisableExplicitGC não esteja ligado.
+ final class MemoriaForaDoHeap {
+     static final int BITS_PARTE = 24;
+     static final int TAMANHO_PARTE = 1 << BITS_PARTE;
+     private static final int MASCARA = TAMANHO_PARTE - 1;
+     private static final int TAMANHO_MINIMO = 4096;
+ 
+     private ByteBuffer[] partes = new ByteBuffer[4];
+     private int quantidadePartes;
+ 
+     // Garante que os bytes [0, bytes) existam (zerados quando novos)
+     void garantir(long bytes) {
+         if (bytes <= capacidade()) {
+             return;
+         }
+         int primeira = quantidadePartes == 0 ? 0 : partes[0].capacity();
+         if (quantidadePartes <= 1 && primeira < TAMANHO_PARTE) {
+             long desejado = Math.max(Math.max(TAMANHO_MINIMO, primeira * 2L), Long.highestOneBit(bytes - 1) << 1);
+             ByteBuffer nova = ByteBuffer.allocateDirect((int) Math.min(desejado, TAMANHO_PARTE)).order(ByteOrder.nativeOrder());
+             if (quantidadePartes == 1) {
+                 nova.put(partes[0].duplicate().clear());
+             }
+             partes[0] = nova;
+             quantidadePartes = 1;
+         }
+         while (capacidade() < bytes) {
+             if (quantidadePartes == partes.length) {
+                 partes = Arrays.copyOf(partes, quantidadePartes * 2);
+             }
+             partes[quantidadePartes++] = ByteBuffer.allocateDirect(TAMANHO_PARTE).order(ByteOrder.nativeOrder());
+         }
+     }
+ 
+     long capacidade() {
+         return quantidadePartes == 0 ? 0 : (long) (quantidadePartes - 1) * TAMANHO_PARTE + partes[quantidadePartes - 1].capacity();
+     }
+ 
+     long getLong(long posicao) {
+         return partes[(int) (posicao >>> BITS_PARTE)].getLong((int) posicao & MASCARA);
+     }
+ 
+     void putLong(long posicao, long valor) {
+         partes[(int) (posicao >>> BITS_PARTE)].putLong((int) posicao & MASCARA, valor);
+     }
+ 
+     int getInt(long posicao) {
+         return partes[(int) (posicao >>> BITS_PARTE)].getInt((int) posicao & MASCARA);
+     }
+ 
+     void putInt(long posicao, int valor) {
+         partes[(int) (posicao >>> BITS_PARTE)].putInt((int) posicao & MASCARA, valor);
+     }
+ 
+     short getShort(long posicao) {
+         return partes[(int) (posicao >>> BITS_PARTE)].getShort((int) posicao & MASCARA);
+     }
+ 
+     void putShort(long posicao, short valor) {
+         partes[(int) (posicao >>> BITS_PARTE)].putShort((int) posicao & MASCARA, valor);
+     }
+ 
+     void lerBytes(long posicao, byte[] destino) {
+         partes[(int) (posicao >>> BITS_PARTE)].get((int) posicao & MASCARA, destino);
+     }
+ 
+     void gravarBytes(long posicao, byte[] origem) {
+         partes[(int) (posicao >>> BITS_PARTE)].put((int) posicao & MASCARA, origem);
+     }
+ }
+ 
+ // ✅ DICIONÁRIO DE NOMES FORA DO HEAP: cada nome distinto é guardado uma vez e recebe um ID int
+ // Bytes: [u16 tamanho][UTF-8] (uma entrada nunca atravessa partes); endereços: 8 bytes por ID;
+ // tabela de busca: hash aberto de 4 bytes por slot guardando ID + 1 (0 é vazio).
+ final class DicionarioNomes {
+     private final MemoriaForaDoHeap bytes = new MemoriaForaDoHeap();
+     private final MemoriaForaDoHeap enderecos = new MemoriaForaDoHeap();
+     private MemoriaForaDoHeap tabela = new MemoriaForaDoHeap();
+     private int capacidadeTabela = 1 << 16;
+     private long proximoByte;
+     private int quantidade;
+ 
+     DicionarioNomes() {
+         tabela.garantir((long) capacidadeTabela * Integer.BYTES);
+     }
+ 
+     int id(String nome) {
+         byte[] codificado = nome.getBytes(StandardCharsets.UTF_8);
+         if (codificado.length > 0xFFFF) {
+             throw new IllegalArgumentException("❌ Nome grande demais para o dicionário");
+         }
+         int hash = espalhar(Arrays.hashCode(codificado));
+         int mascara = capacidadeTabela - 1;
+         int i = hash & mascara;
+         for (int valor; (valor = tabela.getInt((long) i * Integer.BYTES)) != 0; i = (i + 1) & mascara) {
+             if (igual(valor - 1, codificado)) {
+                 return valor - 1;
+             }
+         }
+         int id = incluir(codificado);
+         tabela.putInt((long) i * Integer.BYTES, id + 1);
+         if (quantidade * 2 > capacidadeTabela) {
+             redimensionar();
+         }
+         return id;
+     }
+ 
+     // Decodifica sob demanda: o String existe só enquanto quem pediu o usa
+     String nome(int id) {
+         long endereco = enderecos.getLong((long) id * Long.BYTES);
+         byte[] codificado = new byte[bytes.getShort(endereco) & 0xFFFF];
+         bytes.lerBytes(endereco + Short.BYTES, codificado);
+         return new String(codificado, StandardCharsets.UTF_8);
+     }
+ 
+     int quantidade() {
+         return quantidade;
+     }
+ 
+     private int incluir(byte[] codificado) {
+         long tamanho = Short.BYTES + codificado.length;
+         long restanteNaParte = MemoriaForaDoHeap.TAMANHO_PARTE - (proximoByte & (MemoriaForaDoHeap.TAMANHO_PARTE - 1));
+         if (tamanho > restanteNaParte) {
+             proximoByte += restanteNaParte;
+         }
+         bytes.garantir(proximoByte + tamanho);
+         bytes.putShort(proximoByte, (short) codificado.length);
+         bytes.gravarBytes(proximoByte + Short.BYTES, codificado);
+         // Próxima entrada alinhada em 2 bytes para o u16 do tamanho
+         int id = quantidade++;
+         enderecos.garantir((long) quantidade * Long.BYTES);
+         enderecos.putLong((long) id * Long.BYTES, proximoByte);
+         proximoByte += (tamanho + 1) & ~1L;
+         return id;
+     }
+ 
+     private boolean igual(int id, byte[] codificado) {
+         long endereco = enderecos.getLong((long) id * Long.BYTES);
+         if ((bytes.getShort(endereco) & 0xFFFF) != codificado.length) {
+             return false;
+         }
+         byte[] guardado = new byte[codificado.length];
+         bytes.lerBytes(endereco + Short.BYTES, guardado);
+         return Arrays.equals(guardado, codificado);
+     }
+ 
+     // A tabela antiga fica para o GC (veja MemoriaForaDoHeap)
+     private void redimensionar() {
+         int novaCapacidade = capacidadeTabela * 2;
+         MemoriaForaDoHeap nova = new MemoriaForaDoHeap();
+         nova.garantir((long) novaCapacidade * Integer.BYTES);
+         int mascara = novaCapacidade - 1;
+         for (int id = 0; id < quantidade; id++) {
+             byte[] codificado = new byte[bytes.getShort(enderecos.getLong((long) id * Long.BYTES)) & 0xFFFF];
+             bytes.lerBytes(enderecos.getLong((long) id * Long.BYTES) + Short.BYTES, codificado);
+             int i = espalhar(Arrays.hashCode(codificado)) & mascara;
+             while (nova.getInt((long) i * Integer.BYTES) != 0) {
+                 i = (i + 1) & mascara;
+             }
+             nova.putInt((long) i * Integer.BYTES, id + 1);
+         }
+         tabela = nova;
+         capacidadeTabela = novaCapacidade;
+     }
+ 
+     private static int espalhar(int hash) {
+         hash *= 0x9E3779B9;
+         return hash ^ (hash >>> 16);
+     }
+ }
+ 
+ /**
+  * ✅ REGISTRO COLUNAR DE PACIENTES FORA DO HEAP (modo opcional para cadastros muito grandes)
+  * Cada campo é uma coluna em memória direta: cpf (8 bytes), ID do nome no dicionário (4 bytes)
+  * e telefone em dígitos empacotados (8 bytes). Com o índice de CPF também fora do heap, são
+  * de 52 a 84 bytes por paciente (conforme a ocupação do índice) e nenhum objeto por paciente
+  * no heap, então o GC não percorre os dados. O acesso devolve visões de Paciente que só guardam
+  * o número da linha.
+  * Diferença de contrato: o telefone volta só com os dígitos ("(11) 99999-9999" volta como
+  * "11999999999"); telefone nulo volta nulo, e um telefone com letras ou mais de 17 dígitos é recusado.
+  * Como o GerenciadorPacientes, não é thread-safe.
+  */
+ class RegistroPacientesColunar {
+     private static final int SLOT_INDICE = 16; // [cpf + 1 long][linha int][livre int]
+ 
+     private final MemoriaForaDoHeap cpfs = new MemoriaForaDoHeap();
+     private final MemoriaForaDoHeap nomes = new MemoriaForaDoHeap();
+     private final MemoriaForaDoHeap telefones = new MemoriaForaDoHeap();
+     private final DicionarioNomes dicionario = new DicionarioNomes();
+     private MemoriaForaDoHeap indice = new MemoriaForaDoHeap();
+     private long capacidadeIndice = 1 << 16;
+     private int quantidade;
+ 
+     public RegistroPacientesColunar() {
+         indice.garantir(capacidadeIndice * SLOT_INDICE);
+     }
+ 
+     // ✅ Como no GerenciadorPacientes, CPF repetido é recusado (o telefone segue a regra do comentário da classe)
+     public boolean cadastrarPaciente(String nome, String cpf, String telefone) {
+         long chave = Cpf.empacotar(cpf);
+         long telefoneEmpacotado = empacotarTelefone(telefone);
+         long slot = slotDe(chave);
+         if (indice.getLong(slot) != 0) {
+             Log.aviso("⚠️ CPF já cadastrado: {}").com(cpf).publicar();
+             return false;
+         }
+         int linha = quantidade;
+         cpfs.garantir((linha + 1L) * Long.BYTES);
+         nomes.garantir((linha + 1L) * Integer.BYTES);
+         telefones.garantir((linha + 1L) * Long.BYTES);
+         cpfs.putLong((long) linha * Long.BYTES, chave);
+         nomes.putInt((long) linha * Integer.BYTES, dicionario.id(nome));
+         telefones.putLong((long) linha * Long.BYTES, telefoneEmpacotado);
+         indice.putInt(slot + Long.BYTES, linha);
+         indice.putLong(slot, chave + 1);
+         quantidade++;
+         if (quantidade * 2L > capacidadeIndice) {
+             redimensionarIndice();
+         }
+         return true;
+     }
+ 
+     public Paciente buscarPorCpf(String cpf) {
+         long slot = slotDe(Cpf.empacotar(cpf));
+         return indice.getLong(slot) == 0 ? null : new VisaoPaciente(this, indice.getInt(slot + Long.BYTES));
+     }
+ 
+     public Paciente obter(int linha) {
+         if (linha < 0 || linha >= quantidade) {
+             throw new IndexOutOfBoundsException("❌ Linha fora do registro: " + linha);
+         }
+         return new VisaoPaciente(this, linha);
+     }
+ 
+     // ✅ Percorre tudo com uma única visão reposicionada a cada linha (não guarde a visão recebida)
+     public void paraCada(Consumer<Paciente> consumidor) {
+         VisaoPaciente visao = new VisaoPaciente(this, 0);
+         for (int linha = 0; linha < quantidade; linha++) {
+             visao.linha = linha;
+             consumidor.accept(visao);
+         }
+     }
+ 
+     // Visão de lista sem cópia (ex.: para GeradorRelatorios.gerarRelatorioPacientes)
+     public List<Paciente> comoLista() {
+         return new AbstractList<Paciente>() {
+             @Override
+             public Paciente get(int indice) {
+                 return obter(indice);
+             }
+ 
+             @Override
+             public int size() {
+                 return quantidade;
+             }
+         };
+     }
+ 
+     public int quantidade() {
+         return quantidade;
+     }
+ 
+     public int nomesDistintos() {
+         return dicionario.quantidade();
+     }
+ 
+     // Slot com o CPF ou o slot vazio onde ele entraria
+     private long slotDe(long cpf) {
+         long chave = cpf + 1;
+         long mascara = capacidadeIndice - 1;
+         for (long i = espalhar(chave) & mascara; ; i = (i + 1) & mascara) {
+             long slot = i * SLOT_INDICE;
+             long atual = indice.getLong(slot);
+             if (atual == chave || atual == 0) {
+                 return slot;
+             }
+         }
+     }
+ 
+     // O índice antigo fica para o GC (veja MemoriaForaDoHeap)
+     private void redimensionarIndice() {
+         MemoriaForaDoHeap antigo = indice;
+         long capacidadeAntiga = capacidadeIndice;
+         capacidadeIndice *= 2;
+         indice = new MemoriaForaDoHeap();
+         indice.garantir(capacidadeIndice * SLOT_INDICE);
+         for (long i = 0; i < capacidadeAntiga; i++) {
+             long chave = antigo.getLong(i * SLOT_INDICE);
+             if (chave != 0) {
+                 long slot = slotDe(chave - 1);
+                 indice.putInt(slot + Long.BYTES, antigo.getInt(i * SLOT_INDICE + Long.BYTES));
+                 indice.putLong(slot, chave);
+             }
+         }
+     }
+ 
+     private static long espalhar(long chave) {
+         chave ^= chave >>> 33;
+         chave *= 0xff51afd7ed558ccdL;
+         chave ^= chave >>> 33;
+         chave *= 0xc4ceb9fe1a85ec53L;
+         chave ^= chave >>> 33;
+         return chave;
+     }
+ 
+     // Até 17 dígitos; espaços, parênteses, hífens, pontos e '+' são ignorados ("(11) 99999-9999").
+     // Quantidade de dígitos nos bits altos preserva zeros à esquerda; 0 (nenhum dígito) representa telefone nulo.
+     static long empacotarTelefone(String telefone) {
+         if (telefone == null) {
+             return 0;
+         }
+         int digitos = 0;
+         long valor = 0;
+         for (int i = 0; i < telefone.length(); i++) {
+             char c = telefone.charAt(i);
+             if (c >= '0' && c <= '9') {
+                 if (++digitos > 17) {
+                     throw new IllegalArgumentException("❌ Telefone inválido: " + telefone);
+                 }
+                 valor = valor * 10 + (c - '0');
+             } else if (c != ' ' && c != '(' && c != ')' && c != '-' && c != '.' && c != '+') {
+                 throw new IllegalArgumentException("❌ Telefone inválido: " + telefone);
+             }
+         }
+         if (digitos == 0) {
+             throw new IllegalArgumentException("❌ Telefone inválido: " + telefone);
+         }
+         return (long) digitos << 57 | valor;
+     }
+ 
+     static String formatarTelefone(long empacotado) {
+         if (empacotado == 0) {
+             return null;
+         }
+         char[] texto = new char[(int) (empacotado >>> 57)];
+         long valor = empacotado & ((1L << 57) - 1);
+         for (int i = texto.length - 1; i >= 0; i--) {
+             texto[i] = (char) ('0' + valor % 10);
+             valor /= 10;
+         }
+         return new String(texto);
+     }
+ 
+     // ✅ Flyweight: a visão guarda só a linha e lê as colunas a cada chamada
+     private static final class VisaoPaciente extends Paciente {
+         private final RegistroPacientesColunar registro;
+         private int linha;
+ 
+         VisaoPaciente(RegistroPacientesColunar registro, int linha) {
+             super(null, 0L, null);
+             this.registro = registro;
+             this.linha = linha;
+         }
+ 
+         @Override
+         public String getNome() {
+             return registro.dicionario.nome(registro.nomes.getInt((long) linha * Integer.BYTES));
+         }
+ 
+         @Override
+         public String getCpf() {
+             return Cpf.formatar(getCpfNumerico());
+         }
+ 
+         @Override
+         public long getCpfNumerico() {
+             return registro.cpfs.getLong((long) linha * Long.BYTES);
+         }
+ 
+         @Override
+         public String getTelefone() {
+             return formatarTelefone(registro.telefones.getLong((long) linha * Long.BYTES));
+         }
+     }
  }
  
  // 🏡 Testando o sistema da clínica (agora modularizado!)
@@ -122,12 +2249,43 @@
 //          GeradorRelatorios geradorRelatorios = new GeradorRelatorios();
  
 //          gerenciadorPacientes.cadastrarPaciente("Carlos Silva", "123.456.789-00", "11999999999");
+//          gerenciadorPacientes.cadastrarPaciente("Carlos S.", "12345678900", "11888888888"); // recusado: CPF repetido
+//          System.out.println("🔎 Por CPF: " + gerenciadorPacientes.buscarPorCpf("123.456.789-00").getNome());
 //          gerenciadorConsultas.marcarConsulta("Carlos Silva", "10/04/2024");
-//          gerenciadorPagamentos.processarPagamento("Carlos Silva", 250);
+//          gerenciadorPagamentos.processarPagamentoEmCentavos("Carlos Silva", Dinheiro.deReais(250));
  
 //          geradorRelatorios.gerarRelatorioPacientes(gerenciadorPacientes.getPacientes());
 //          geradorRelatorios.gerarRelatorioFinanceiro(gerenciadorPagamentos);
          
+//          // ✅ Consultas da semana (busca por intervalo no índice por horário)
+//          gerenciadorConsultas.marcarConsulta("Carlos Silva", LocalDateTime.of(2024, 4, 12, 14, 30));
+//          LocalDateTime segunda = LocalDateTime.of(2024, 4, 8, 0, 0);
+//          for (Consulta consulta : gerenciadorConsultas.consultasEntre(segunda, segunda.plusWeeks(1))) {
+//              System.out.println("🗓️ " + consulta);
+//          }
+//
 //          gerenciadorConsultas.cancelarConsulta("Carlos Silva", "10/04/2024");
+//
+//          // ✅ Relatório em CSV, em arquivos de até 64 MB, gravado em páginas de 10.000 pacientes
+//          try (EscritorRelatorio escritor = new EscritorRelatorio(Path.of("relatorios"), "pacientes",
+//                  EscritorRelatorio.Formato.CSV, 64L * 1024 * 1024)) {
+//              List<Paciente> todos = gerenciadorPacientes.getPacientes();
+//              for (int pagina = 0; pagina * 10_000 < todos.size(); pagina++) {
+//                  geradorRelatorios.gerarRelatorioPacientes(todos, pagina * 10_000, 10_000, escritor);
+//              }
+//          }
+//
+//          // ✅ Pacientes persistidos: ao reabrir, o índice é só mapeado e a busca responde na hora
+//          try (ArmazemPacientes armazem = new ArmazemPacientes(Path.of("dados-pacientes"), 64L * 1024 * 1024)) {
+//              armazem.iniciarCompactacao(1, TimeUnit.MINUTES, 0.5);
+//              GerenciadorPacientes persistente = new GerenciadorPacientes(armazem);
+//              persistente.cadastrarPaciente("Ana Souza", "987.654.321-00", "11977777777");
+//              System.out.println("💾 Do armazém: " + persistente.buscarPorCpf("98765432100").getNome());
+//          }
+//
+//          // ✅ Cadastro gigante fora do heap: colunas em memória direta e nomes num dicionário
+//          RegistroPacientesColunar colunar = new RegistroPacientesColunar();
+//          colunar.cadastrarPaciente("Carlos Silva", "123.456.789-00", "11999999999");
+//          System.out.println("🗄️ Colunar: " + colunar.buscarPorCpf("12345678900").getTelefone());
 //      }
 //  } 
\ No newline at end of file